@@ -55,6 +55,7 @@ import nl.tue.s2id90.game.Game;
 import nl.tue.s2id90.game.Game.Result;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchLimits;
 import nl.tue.win.util.Timer;
 
 /**
@@ -431,6 +432,27 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     }
         
     SearchTask currentSearchTask=null;
+    Player<M,S> ponderingPlayer=null;  // player that thinks on the time of its opponent
+    M ponderedMove=null;          // move the pondering player expects
+    
+    /** tells the pondering player, if any, whether it expected move m. **/
+    private void endPondering(M m) {
+        if (ponderingPlayer!=null) {
+            if (m!=null && m.equals(ponderedMove)) ponderingPlayer.ponderHit();
+            else ponderingPlayer.ponderMiss();
+            ponderingPlayer = null;
+        }
+    }
+    
+    /** lets player, that just did its move, ponder in state gs if its opponent is another player. **/
+    private void startPondering(Player<M,S> player, boolean otherOpponent, S gs) {
+        M expected = player.getExpectedMove();
+        if (expected!=null && otherOpponent && !gs.isEndState()) {
+            ponderingPlayer = player;
+            ponderedMove = expected;
+            player.ponderStart(gs, expected);
+        }
+    }
     private void continueGame(final Game game, final S gs) {
         if ((currentGame==null) || gs.isEndState()) {
             finishGame(game,gs);
@@ -451,6 +473,7 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     }
     
     private void finishGame(final Game game, final S gs) {
+        endPondering(null);
         currentGame = null;
         updateGUI(); updateGUI(game,gs);
         // for now, give a random result
@@ -466,7 +489,7 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         SearchTask<M, Long, S> searchTask;
         final Timer timer = new Timer();
         final int maxTime = timeSlider.getValue();
-        searchTask = new TimedSearchTask<M, Long, S>(currentPlayer, gs, maxTime*1000) {
+        searchTask = new TimedSearchTask<M, Long, S>(currentPlayer, gs, SearchLimits.moveTime(maxTime*1000)) {
             private long MIN_DELAY=1500; // minimum time for a move 1500 milliseconds
             @Override
             public void done(M m) {
@@ -480,9 +503,11 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
                 }
                 
                 // apply move in the current game state
+                endPondering(m);
                 if (gs.getMoves().contains(m)) {
                     //gs.doMove(m);
                     notifyCompetitionListeners(m); // notify of next AI move
+                    startPondering(getPlayer(), game.first!=game.second, gs);
                     //gameGUI.animateMove(m);
                     // recurse
                     continueGame(game,gs); 
@@ -685,6 +710,7 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
 
     @Override
     public void onHumanMove(M m) {
+        endPondering(m);
         continueGame(currentGame,gameGUI.getCurrentGameState());
     }
 
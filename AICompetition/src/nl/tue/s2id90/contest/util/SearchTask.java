@@ -4,6 +4,7 @@ import java.util.concurrent.ExecutionException;
 import javax.swing.SwingWorker;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchLimits;
 
 /**
  * class
@@ -17,14 +18,30 @@ public abstract class SearchTask<M,U,S extends GameState<M>>
     private SwingWorker<M,U> worker;
     private final Player<M,S> player;
     private final S state;
+    private final SearchLimits limits;
 
     /**
      * @param player for whom to perform a search for the best move in state s
      * @param s game state in which to search for a best move
      */
     public SearchTask(Player<M,S> player, S s) {
+        this(player, s, SearchLimits.NONE);
+    }
+    
+    /**
+     * @param player for whom to perform a search for the best move in state s
+     * @param s game state in which to search for a best move
+     * @param limits budget that is passed to the player
+     */
+    public SearchTask(Player<M,S> player, S s, SearchLimits limits) {
         this.state = s;
         this.player = player;
+        this.limits = limits;
+    }
+    
+    /** @return player for whom this task searches. **/
+    public Player<M,S> getPlayer() {
+        return player;
     }
     
     /**
@@ -44,7 +61,7 @@ public abstract class SearchTask<M,U,S extends GameState<M>>
             try {
                 // we clone the state here, so whatever the player does with the
                 // state, will not ruin the GUI!
-                return player.getMove((S)state.clone());
+                return player.getMove((S)state.clone(), limits);
             } catch(Exception e) {
                 e.printStackTrace();
                 System.err.println(e);
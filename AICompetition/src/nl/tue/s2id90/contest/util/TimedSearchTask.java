@@ -4,10 +4,12 @@ import java.util.Timer;
 import java.util.TimerTask;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchLimits;
 
 /**
- * This search task automatically stops after given number of seconds. This is done
- * by calling its stop() method in a TimerTask.
+ * This search task automatically stops at the deadline of its search limits. This is done
+ * by calling its stop() method in a TimerTask. The limits are also passed to the player,
+ * so it can plan its time and return before the deadline.
  * @author huub
  * @param <M> Move 
  * @param <U> UndoMove
@@ -17,13 +19,22 @@ public abstract class TimedSearchTask<M, U, S extends GameState<M>>
     extends SearchTask<M, U, S> {
     static Timer timer = new Timer();  // can schedule multiple tasks, so no need to make a new one
     public TimedSearchTask(Player<M, S> player, S s, int milliSeconds) {
-        super(player, s);
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                    TimedSearchTask.this.stop();
-            }            
-        };
-        timer.schedule(task, milliSeconds);        
+        this(player, s, SearchLimits.moveTime(milliSeconds));
+    }
+    
+    /** search task that stops at the deadline of the given limits, or only when 
+     * the player returns if the limits have no deadline (e.g. fixed depth or nodes).
+     **/
+    public TimedSearchTask(Player<M, S> player, S s, SearchLimits limits) {
+        super(player, s, limits);
+        if (limits.hasDeadline()) {
+            TimerTask task = new TimerTask() {
+                @Override
+                public void run() {
+                        TimedSearchTask.this.stop();
+                }            
+            };
+            timer.schedule(task, limits.timeToDeadline());
+        }
     }    
 }
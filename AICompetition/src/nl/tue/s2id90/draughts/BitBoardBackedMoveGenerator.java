@@ -0,0 +1,99 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.ArrayList;
+import java.util.List;
+import static nl.tue.s2id90.draughts.BitBoardMoveGenerator.bit;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKKING;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKPIECE;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEKING;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEPIECE;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.MoveFilterMaximumCapture;
+import org10x10.dam.game.MoveGenerator;
+
+/**
+ * Library MoveGenerator whose legal moves are generated by a
+ * {@link BitBoardMoveGenerator}, for killer and for international rules.
+ * For killer rules the restriction is applied while the capture tree is
+ * walked, so king captures that are not allowed are never turned into Move
+ * objects. Before, all international captures were generated and then
+ * filtered by {@link MoveFilterKiller}; that generator is still available as
+ * {@link MyMoveGeneratorFactory#createLibrary} so the two can be checked
+ * against each other.
+ * <p>
+ * The moves deliberately differ from those of the library generator: a capture
+ * that can be played along two paths is returned once, and a capturing king
+ * never counts its own (vacated) start field as a captured piece, see
+ * {@link BitBoardMoveGenerator}. Because the human moves in the GUI also come
+ * from this generator, they are the same moves as the ones DraughtsState and
+ * the players generate.
+ * </p>
+ * <p>
+ * The illegal moves (only used by the GUI to explain why a move is not
+ * allowed) are still computed by the generator of the library, but only when
+ * they are asked for.
+ * </p>
+ */
+public class BitBoardBackedMoveGenerator extends MoveGenerator {
+    private final BitBoardMoveGenerator generator;
+    private List<Move> legalMoves = new ArrayList<>();
+
+    /**
+     * copy of the board of the last call to generateAllMoves; null if the
+     * library generator is up to date. It is a copy because the caller may
+     * change its board before the illegal moves are asked for.
+     */
+    private BoardState board = null;
+
+    public BitBoardBackedMoveGenerator(boolean useKillerRules) {
+        super(true, true, false, new MoveFilterMaximumCapture());
+        generator = BitBoardMoveGenerator.forRules(useKillerRules);
+    }
+
+    @Override
+    public void generateAllMoves(BoardState bs) {
+        long white = 0, black = 0, kings = 0;
+        for (int f = 1; f <= 50; f++) {
+            switch (bs.getPiece(f)) {
+                case WHITEPIECE: white |= bit(f); break;
+                case BLACKPIECE: black |= bit(f); break;
+                case WHITEKING:  white |= bit(f); kings |= bit(f); break;
+                case BLACKKING:  black |= bit(f); kings |= bit(f); break;
+                default: break;
+            }
+        }
+        legalMoves = generator.generateMoves(white, black, kings, bs.isWhiteToMove());
+        board = (BoardState) bs.clone();
+    }
+
+    @Override
+    public List<Move> generateMoves(BoardState bs) {
+        generateAllMoves(bs);
+        return legalMoves;
+    }
+
+    @Override
+    public List<Move> legalMoves() {
+        return legalMoves;
+    }
+
+    @Override
+    public List<Move> illegalMoves() {
+        updateLibraryMoves();
+        return super.illegalMoves();
+    }
+
+    @Override
+    public List<Move> allMoves() {
+        updateLibraryMoves();
+        return super.allMoves();
+    }
+
+    private void updateLibraryMoves() {
+        if (board != null) {
+            super.generateAllMoves(board);
+            board = null;
+        }
+    }
+}
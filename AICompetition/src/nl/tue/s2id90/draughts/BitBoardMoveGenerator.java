@@ -0,0 +1,467 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.ArrayList;
+import java.util.List;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKKING;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKPIECE;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEKING;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEPIECE;
+import org10x10.dam.game.Move;
+
+/**
+ * Move generator that works on 64-bit masks instead of a field array.
+ * <p>
+ * Field f (1..50) is stored in bit f-1+(f-1)/10. This leaves an unused
+ * (ghost) bit after every two rows, such that the four diagonal directions
+ * become constant shifts: -6 (up left), -5 (up right), +5 (down left) and
+ * +6 (down right). A step off the board always ends on a ghost bit or outside
+ * the 54 used bits.
+ * </p>
+ * <blockquote><pre>
+ *   col  0  1  2  3  4  5  6  7  8  9
+ *  row ------------------------------
+ *   0  |     0     1     2     3     4
+ *   1  |  5     6     7     8     9      (10)
+ *   2  |    11    12    13    14    15
+ *   3  | 16    17    18    19    20      (21)
+ *   ...
+ *   9  | 49    50    51    52    53
+ * </pre></blockquote>
+ * The generator is stateless, so there is one shared instance per rule set,
+ * see {@link #KILLER}, {@link #INTERNATIONAL} and {@link #forRules(boolean)}.
+ * <p>
+ * It gives the same moves as the library generators created by
+ * {@link MyMoveGeneratorFactory#createLibrary}, with two deliberate
+ * differences:
+ * </p>
+ * <ul>
+ * <li> capture sequences with the same begin field, end field and captured
+ *      pieces are returned only once;
+ * <li> a capturing king has left its start field, so that field is empty for
+ *      the rest of the capture and is never a captured piece. The library
+ *      generator can count the vacated start field of the king as a captured
+ *      piece; with killer rules MoveFilterKiller then looks at the wrong last
+ *      captured piece. Perft -library skips such positions when it compares
+ *      the two generators.
+ * </ul>
+ */
+public class BitBoardMoveGenerator {
+    /** mask with all 50 playable bits set. **/
+    public static final long BOARD;
+
+    /** bits of the fields on which white men promote (1-5). **/
+    public static final long WHITE_PROMOTION = 0x1FL;
+
+    /** bits of the fields on which black men promote (46-50). **/
+    public static final long BLACK_PROMOTION = 0x1FL << 49;
+
+    /** the four diagonal directions as bit offsets. **/
+    static final int[] DIRECTIONS = {-6, -5, 5, 6};
+
+    /** field number of each bit, 0 for ghost bits. **/
+    static final int[] BIT_TO_FIELD = new int[64];
+
+    /** bit of each field, index 0 is unused. **/
+    static final int[] FIELD_TO_BIT = new int[51];
+
+    /** NEXT[d][b] is the bit one step from bit b in direction DIRECTIONS[d], or -1. **/
+    static final int[][] NEXT = new int[4][64];
+
+    static {
+        long board = 0;
+        for (int f = 1; f <= 50; f++) {
+            int b = f - 1 + (f - 1) / 10;
+            FIELD_TO_BIT[f] = b;
+            BIT_TO_FIELD[b] = f;
+            board |= 1L << b;
+        }
+        BOARD = board;
+        for (int d = 0; d < 4; d++) {
+            for (int b = 0; b < 64; b++) {
+                int n = b + DIRECTIONS[d];
+                NEXT[d][b] = (BIT_TO_FIELD[b] != 0 && n >= 0 && n < 64 && BIT_TO_FIELD[n] != 0) ? n : -1;
+            }
+        }
+    }
+
+    /**
+     * maximum number of moves in a position that fit in a move buffer; this
+     * is far more than occurs in real games.
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * indicates if killer rules are used: a king that captures a king as last
+     * piece of its capture has to end immediately behind that king.
+     */
+    private final boolean useKillerRules;
+
+    /** the shared generator for killer rules. **/
+    public static final BitBoardMoveGenerator KILLER = new BitBoardMoveGenerator(true);
+
+    /** the shared generator for international rules. **/
+    public static final BitBoardMoveGenerator INTERNATIONAL = new BitBoardMoveGenerator(false);
+
+    private BitBoardMoveGenerator(boolean useKillerRules) {
+        this.useKillerRules = useKillerRules;
+    }
+
+    /** @return the shared generator for the given rules. **/
+    public static BitBoardMoveGenerator forRules(boolean useKillerRules) {
+        return useKillerRules ? KILLER : INTERNATIONAL;
+    }
+
+    /** @return whether or not this generator applies the killer rules. **/
+    public boolean usesKillerRules() {
+        return useKillerRules;
+    }
+
+    /** @return mask with only the bit of field f set. **/
+    public static long bit(int f) {
+        return 1L << FIELD_TO_BIT[f];
+    }
+
+    /** @return field of the lowest bit set in mask m. **/
+    public static int field(long m) {
+        return BIT_TO_FIELD[Long.numberOfTrailingZeros(m)];
+    }
+
+    /** @return mask m in the field layout of PackedMove: bit f-1 for field f. **/
+    public static long toFields(long m) {
+        return (m & 0x3FFL)
+             | (m >>> 1) & (0x3FFL << 10)
+             | (m >>> 2) & (0x3FFL << 20)
+             | (m >>> 3) & (0x3FFL << 30)
+             | (m >>> 4) & (0x3FFL << 40);
+    }
+
+    /** @return field layout mask m (bit f-1 for field f) in the layout of this generator. **/
+    public static long toBits(long m) {
+        return (m & 0x3FFL)
+             | (m & (0x3FFL << 10)) << 1
+             | (m & (0x3FFL << 20)) << 2
+             | (m & (0x3FFL << 30)) << 3
+             | (m & (0x3FFL << 40)) << 4;
+    }
+
+    /**
+     * generates all legal moves of the player to move.
+     * @param white  mask of white pieces and kings
+     * @param black  mask of black pieces and kings
+     * @param kings  mask of kings of both colours
+     * @param whiteToMove whether or not white is to move
+     * @return list of legal moves
+     */
+    public List<Move> generateMoves(long white, long black, long kings, boolean whiteToMove) {
+        long[] buffer = new long[MAX_MOVES];
+        int n = generateMoves(white, black, kings, whiteToMove, buffer, 0);
+        List<Move> moves = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            moves.add(toMove(buffer[i], white, black, kings));
+        }
+        return moves;
+    }
+
+    /**
+     * generates all legal moves of the player to move as packed moves. No
+     * objects are allocated.
+     * @param white  mask of white pieces and kings
+     * @param black  mask of black pieces and kings
+     * @param kings  mask of kings of both colours
+     * @param whiteToMove whether or not white is to move
+     * @param moves  buffer in which the moves are stored
+     * @param offset index in moves of the first generated move
+     * @return index in moves after the last generated move
+     * @see PackedMove
+     */
+    public int generateMoves(long white, long black, long kings, boolean whiteToMove, long[] moves, int offset) {
+        long own = whiteToMove ? white : black;
+        long opponent = whiteToMove ? black : white;
+        long empty = BOARD & ~(white | black);
+        int n = generateCaptures(own, opponent, kings, empty, whiteToMove, moves, offset);
+        if (n == offset) {
+            n = quietMoves(own, kings, empty, whiteToMove, moves, offset);
+        }
+        return n;
+    }
+
+    /**
+     * generates the captures with the maximum number of captured pieces of 
+     * the player to move as packed moves. If there are none, no moves are 
+     * generated.
+     * @return index in moves after the last generated move
+     * @see BitBoardMoveGenerator#generateMoves(long, long, long, boolean, long[], int) 
+     */
+    public int generateCaptures(long white, long black, long kings, boolean whiteToMove, long[] moves, int offset) {
+        long own = whiteToMove ? white : black;
+        long opponent = whiteToMove ? black : white;
+        return generateCaptures(own, opponent, kings, BOARD & ~(white | black), whiteToMove, moves, offset);
+    }
+
+    /**
+     * generates the moves without captures of the player to move as packed 
+     * moves. These are the legal moves only if there is no capture.
+     * @return index in moves after the last generated move
+     * @see BitBoardMoveGenerator#hasCapture(long, long, long, boolean) 
+     */
+    public int generateQuietMoves(long white, long black, long kings, boolean whiteToMove, long[] moves, int offset) {
+        long own = whiteToMove ? white : black;
+        return quietMoves(own, kings, BOARD & ~(white | black), whiteToMove, moves, offset);
+    }
+
+    /**
+     * tests if the player to move can capture, without generating the 
+     * captures. For men this takes one shift per direction. The answer is the
+     * same for both rule sets: if a king capture is not allowed by the killer
+     * rule, the capture that stops immediately behind the last king is.
+     * @return whether or not the player to move has to capture
+     */
+    public static boolean hasCapture(long white, long black, long kings, boolean whiteToMove) {
+        long own = whiteToMove ? white : black;
+        long opponent = whiteToMove ? black : white;
+        long empty = BOARD & ~(white | black);
+        long men = own & ~kings;
+        for (int s : DIRECTIONS) {
+            long over = s < 0 ? (men >>> -s) & opponent : (men << s) & opponent;
+            long to = s < 0 ? (over >>> -s) & empty : (over << s) & empty;
+            if (to != 0) return true;
+        }
+        long ownKings = own & kings;
+        while (ownKings != 0) {
+            int b = Long.numberOfTrailingZeros(ownKings);
+            ownKings &= ownKings - 1;
+            for (int d = 0; d < 4; d++) {
+                int[] next = NEXT[d];
+                int over = next[b];
+                while (over >= 0 && (empty & (1L << over)) != 0) {
+                    over = next[over];
+                }
+                if (over < 0 || (opponent & (1L << over)) == 0) continue;
+                int to = next[over];
+                if (to >= 0 && (empty & (1L << to)) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * tests if the player to move has a legal move, without generating moves.
+     * @return whether or not the player to move can move
+     */
+    public static boolean hasMove(long white, long black, long kings, boolean whiteToMove) {
+        long own = whiteToMove ? white : black;
+        long empty = BOARD & ~(white | black);
+        long men = own & ~kings;
+        long ownKings = own & kings;
+        int d0 = whiteToMove ? 0 : 2;
+        for (int d = 0; d < 4; d++) {
+            int s = DIRECTIONS[d];
+            // men move forward only, kings move in all directions
+            long movers = d >= d0 && d < d0 + 2 ? men | ownKings : ownKings;
+            long to = s < 0 ? (movers >>> -s) & empty : (movers << s) & empty;
+            if (to != 0) return true;
+        }
+        return hasCapture(white, black, kings, whiteToMove);
+    }
+
+    private int quietMoves(long own, long kings, long empty, boolean whiteToMove, long[] moves, int n) {
+        long men = own & ~kings;
+        long promotion = whiteToMove ? WHITE_PROMOTION : BLACK_PROMOTION;
+
+        // men: one shift per forward direction
+        int d0 = whiteToMove ? 0 : 2;
+        for (int d = d0; d < d0 + 2; d++) {
+            int s = DIRECTIONS[d];
+            long from = s < 0 ? men & (empty << -s) : men & (empty >>> s);
+            while (from != 0 && n < moves.length) {
+                int b = Long.numberOfTrailingZeros(from);
+                from &= from - 1;
+                int t = b + s;
+                moves[n++] = PackedMove.of(BIT_TO_FIELD[b], BIT_TO_FIELD[t], 0L, (promotion & (1L << t)) != 0);
+            }
+        }
+
+        // kings: walk along the four diagonals
+        long ownKings = own & kings;
+        while (ownKings != 0) {
+            int b = Long.numberOfTrailingZeros(ownKings);
+            ownKings &= ownKings - 1;
+            for (int d = 0; d < 4; d++) {
+                int[] next = NEXT[d];
+                for (int t = next[b]; t >= 0 && (empty & (1L << t)) != 0 && n < moves.length; t = next[t]) {
+                    moves[n++] = PackedMove.of(BIT_TO_FIELD[b], BIT_TO_FIELD[t], 0L, false);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * depth first walk through the capture trees of all pieces of the player
+     * to move. Only sequences with the maximum number of captured pieces are
+     * kept.
+     */
+    private int generateCaptures(long own, long opponent, long kings, long empty, boolean whiteToMove, long[] moves, int offset) {
+        long promotion = whiteToMove ? WHITE_PROMOTION : BLACK_PROMOTION;
+        int n = offset;
+        long pieces = own;
+        while (pieces != 0) {
+            int b = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long from = 1L << b;
+            // the moving piece leaves its field, captured pieces stay until the end
+            if ((kings & from) != 0) {
+                n = kingCaptures(b, b, -1, 0L, 0, opponent, kings, empty | from, moves, offset, n);
+            } else {
+                n = manCaptures(b, b, 0L, 0, opponent, empty | from, promotion, moves, offset, n);
+            }
+        }
+        return n;
+    }
+
+    private int manCaptures(int begin, int b, long captured, int count, long opponent, long empty,
+            long promotion, long[] moves, int offset, int n) {
+        boolean extended = false;
+        for (int d = 0; d < 4; d++) {
+            int over = NEXT[d][b];
+            if (over < 0) continue;
+            long overBit = 1L << over;
+            if ((opponent & overBit & ~captured) == 0) continue;
+            int to = NEXT[d][over];
+            if (to < 0 || (empty & (1L << to)) == 0) continue;
+            extended = true;
+            n = manCaptures(begin, to, captured | overBit, count + 1, opponent, empty, promotion, moves, offset, n);
+        }
+        if (!extended && count > 0) {
+            long m = PackedMove.of(BIT_TO_FIELD[begin], BIT_TO_FIELD[b], toFields(captured), (promotion & (1L << b)) != 0);
+            n = add(m, count, moves, offset, n);
+        }
+        return n;
+    }
+
+    private int kingCaptures(int begin, int b, int last, long captured, int count, long opponent, long kings,
+            long empty, long[] moves, int offset, int n) {
+        boolean extended = false;
+        for (int d = 0; d < 4; d++) {
+            int[] next = NEXT[d];
+            int over = next[b];
+            while (over >= 0 && (empty & (1L << over)) != 0) {
+                over = next[over];
+            }
+            if (over < 0) continue;
+            long overBit = 1L << over;
+            if ((opponent & overBit & ~captured) == 0) continue;
+            for (int to = next[over]; to >= 0 && (empty & (1L << to)) != 0; to = next[to]) {
+                extended = true;
+                n = kingCaptures(begin, to, over, captured | overBit, count + 1, opponent, kings, empty, moves, offset, n);
+            }
+        }
+        if (!extended && count > 0) {
+            // killer rules: after capturing a king as last piece, the king stops immediately behind it
+            if (useKillerRules && (kings & (1L << last)) != 0 && !areNeighbours(last, b)) {
+                return n;
+            }
+            long m = PackedMove.of(BIT_TO_FIELD[begin], BIT_TO_FIELD[b], toFields(captured), false);
+            n = add(m, count, moves, offset, n);
+        }
+        return n;
+    }
+
+    /**
+     * adds capture m of count pieces to moves[offset..n), if no longer capture
+     * is known and m is not yet present. Shorter captures are removed.
+     * @return new end index
+     */
+    private static int add(long m, int count, long[] moves, int offset, int n) {
+        if (n > offset) {
+            int best = PackedMove.captureCount(moves[offset]);
+            if (count < best) return n;
+            if (count > best) {
+                n = offset;
+            } else {
+                for (int i = offset; i < n; i++) {
+                    if (moves[i] == m) return n;
+                }
+            }
+        }
+        if (n < moves.length) moves[n++] = m;
+        return n;
+    }
+
+    /**
+     * converts packed move m into a Move object, including the intermediate
+     * fields and the captured pieces in the order of capturing.
+     * @param m      packed move, legal in the given position
+     * @param white  mask of white pieces and kings
+     * @param black  mask of black pieces and kings
+     * @param kings  mask of kings of both colours
+     * @return Move object for m
+     */
+    public static Move toMove(long m, long white, long black, long kings) {
+        int from = PackedMove.from(m), to = PackedMove.to(m);
+        long fromBit = bit(from);
+        boolean whiteMove = (white & fromBit) != 0;
+        boolean king = (kings & fromBit) != 0;
+        int beginPiece = whiteMove ? (king ? WHITEKING : WHITEPIECE) : (king ? BLACKKING : BLACKPIECE);
+        int endPiece = PackedMove.isPromotion(m) ? (whiteMove ? WHITEKING : BLACKKING) : beginPiece;
+        int count = PackedMove.captureCount(m);
+        if (count == 0) {
+            return new Move(new int[]{from, to}, NONE, NONE, beginPiece, endPiece);
+        }
+
+        int[] path = new int[count + 1];
+        int[] capturedBits = new int[count];
+        path[0] = FIELD_TO_BIT[from];
+        long empty = BOARD & ~(white | black) | fromBit;
+        findPath(path[0], 0, toBits(PackedMove.captures(m)), king, empty, FIELD_TO_BIT[to], path, capturedBits);
+
+        int[] fields = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            fields[i] = BIT_TO_FIELD[path[i]];
+        }
+        int[] capturedFields = new int[count];
+        int[] capturedPieces = new int[count];
+        for (int i = 0; i < count; i++) {
+            long c = 1L << capturedBits[i];
+            capturedFields[i] = BIT_TO_FIELD[capturedBits[i]];
+            capturedPieces[i] = whiteMove ? ((kings & c) != 0 ? BLACKKING : BLACKPIECE)
+                                          : ((kings & c) != 0 ? WHITEKING : WHITEPIECE);
+        }
+        return new Move(fields, capturedPieces, capturedFields, beginPiece, endPiece);
+    }
+
+    /**
+     * searches a capture path from bit b that captures exactly the pieces in
+     * remaining and ends on bit target. The path is stored in path and
+     * capturedBits.
+     * @return whether or not such a path exists
+     */
+    private static boolean findPath(int b, int n, long remaining, boolean king, long empty, int target,
+            int[] path, int[] capturedBits) {
+        if (remaining == 0) return b == target;
+        for (int d = 0; d < 4; d++) {
+            int[] next = NEXT[d];
+            int over = next[b];
+            while (king && over >= 0 && (empty & (1L << over)) != 0) {
+                over = next[over];
+            }
+            if (over < 0 || (remaining & (1L << over)) == 0) continue;
+            capturedBits[n] = over;
+            for (int to = next[over]; to >= 0 && (empty & (1L << to)) != 0; to = king ? next[to] : -1) {
+                path[n + 1] = to;
+                if (findPath(to, n + 1, remaining & ~(1L << over), king, empty, target, path, capturedBits)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** @return whether or not bits b0 and b1 are diagonal neighbours. **/
+    private static boolean areNeighbours(int b0, int b1) {
+        int d = b1 - b0;
+        return d == -6 || d == -5 || d == 5 || d == 6;
+    }
+}
@@ -1,11 +1,12 @@
 package nl.tue.s2id90.draughts;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import static nl.tue.s2id90.draughts.BitBoardMoveGenerator.bit;
 import nl.tue.s2id90.game.GameState;
 import org10x10.dam.game.BoardState;
 import org10x10.dam.game.Move;
-import org10x10.dam.game.MoveGenerator;
 
 /**
  * <blockquote><pre>
@@ -71,29 +72,136 @@ public class DraughtsState implements GameState<Move> {
      **/
     final public static int WHITEFIELD = 5;
     
-    private final BoardState bs;
-    private final MoveGenerator moveGenerator;
+    /**
+     * random keys for the Zobrist hash key: ZOBRIST[p][f] is the key of piece p
+     * on field f. Empty fields have key 0. A fixed seed keeps the keys equal
+     * between runs.
+     */
+    private static final long[][] ZOBRIST = new long[5][51];
+    
+    /** key that is part of the hash key when black is to move. **/
+    private static final long ZOBRIST_BLACK_TO_MOVE;
+    
+    static {
+        Random random = new Random(2090L);
+        for(int p=WHITEPIECE; p<=BLACKKING; p++) {
+            for(int f=1; f<=50; f++) {
+                ZOBRIST[p][f] = random.nextLong();
+            }
+        }
+        ZOBRIST_BLACK_TO_MOVE = random.nextLong();
+    }
+    
+    /**
+     * minimal size of a move buffer for generateMoves(long[]).
+     * @see DraughtsState#generateMoves(long[]) 
+     */
+    final public static int MAX_MOVES = BitBoardMoveGenerator.MAX_MOVES;
+    
+    /** initial position. **/
+    private static final int[] BEGIN = new int[51];
+    
+    static {
+        for(int f=1; f<=20; f++) BEGIN[f] = BLACKPIECE;
+        for(int f=31; f<=50; f++) BEGIN[f] = WHITEPIECE;
+    }
+    
+    /** pieces[f] is the piece on field f; pieces[0] is unused. **/
+    private final int[] pieces = new int[51];
+    private boolean whiteToMove;
+    /** shared generator for the rules of this state. **/
+    private final BitBoardMoveGenerator moveGenerator;
     private List<Move> moves=null;
+    private long hashKey;
+    
+    /** masks of white pieces, black pieces and kings, kept in sync with pieces. 
+     * @see BitBoardMoveGenerator
+     **/
+    private long white, black, kings;
+    
+    /** 
+     * pieceFields[p][0..pieceCount[p]-1] are the fields with piece p, in no
+     * particular order; listIndex[f] is the index of field f in its list. 
+     */
+    private final int[][] pieceFields = new int[BLACKKING+1][50];
+    private final int[] pieceCount = new int[BLACKKING+1];
+    private final int[] listIndex = new int[51];
+    
+    /** 
+     * optional feature table of a player: featureTable[p][f] is the value of 
+     * piece p on field f. features is the sum of the values of all pieces on 
+     * the board, kept up to date like the hash key, so a player can read 
+     * piece-square sums (or several counters packed in a long) without 
+     * looking at the board. null if no table is set.
+     * @see DraughtsState#setFeatureTable(long[][]) 
+     */
+    private long[][] featureTable;
+    private long features;
+    
+    /** 
+     * undo stack, UNDO_SIZE longs per move that has been done: the packed 
+     * move (PackedMove.NONE for a null move), the captured fields that 
+     * contained a king (bit f-1 for field f) and the hash key before the move.
+     */
+    private long[] undoStack = new long[UNDO_SIZE*128];
+    private int undoCount = 0;
+    private static final int UNDO_SIZE = 3;
     
     /**
      * creates an initial  draughts state for a game using killer rules
      */
     public DraughtsState() {
-        this(new BoardState(10,10),true);
-        bs.setBegin();
+        this.useKillerRules = true;
+        moveGenerator = BitBoardMoveGenerator.KILLER;
+        reset();
     }
     
+    /** creates a copy of ds, with an empty undo stack. **/
     private DraughtsState(DraughtsState ds) {
-        this(ds.bs, ds.useKillerRules);
+        this.useKillerRules = ds.useKillerRules;
+        moveGenerator = ds.moveGenerator;
+        ds.copyInto(this);
     }
     
-    /** creates a draughts state with a copy of the given BoardState. **/
+    /** creates a draughts state with the pieces of the given BoardState. **/
     public DraughtsState(BoardState bs, boolean useKillerRules) {
-        this.bs = (BoardState) bs.clone();
         this.useKillerRules = useKillerRules;
-        moveGenerator = MyMoveGeneratorFactory.create(bs, useKillerRules);
+        moveGenerator = BitBoardMoveGenerator.forRules(useKillerRules);
+        for(int f=1; f<=50; f++) {
+            pieces[f] = bs.getPiece(f);
+        }
+        whiteToMove = bs.isWhiteToMove();
+        initialize();
     }  
     
+    /**
+     * makes target equal to this state, without allocating objects. The undo
+     * stack of packed moves is not copied: target can not undo moves that 
+     * were done before the copy.
+     * @param target state that is overwritten
+     * @throws IllegalArgumentException if target uses other rules than this state
+     */
+    public void copyInto(DraughtsState target) {
+        if (target.useKillerRules!=useKillerRules) {
+            throw new IllegalArgumentException("target uses other rules");
+        }
+        target.moves = null;
+        System.arraycopy(pieces, 0, target.pieces, 0, pieces.length);
+        target.whiteToMove = whiteToMove;
+        target.white = white;
+        target.black = black;
+        target.kings = kings;
+        target.hashKey = hashKey;
+        target.featureTable = featureTable;
+        target.features = features;
+        for(int p=WHITEPIECE; p<=BLACKKING; p++) {
+            System.arraycopy(pieceFields[p], 0, target.pieceFields[p], 0, pieceCount[p]);
+        }
+        System.arraycopy(pieceCount, 0, target.pieceCount, 0, pieceCount.length);
+        System.arraycopy(listIndex, 0, target.listIndex, 0, listIndex.length);
+        target.undoCount = 0;
+    }
+    
     
     /**
      *
@@ -102,7 +210,7 @@ public class DraughtsState implements GameState<Move> {
     @Override
     public List<Move> getMoves() {
         if (moves==null) 
-            return moves=new ArrayList(moveGenerator.generateMoves(bs));
+            return moves=moveGenerator.generateMoves(white, black, kings, whiteToMove);
         return moves;
     }
 
@@ -112,19 +220,69 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public boolean isEndState() {
-        if (moves==null)
-            moves = new ArrayList(moveGenerator.generateMoves(bs));
+        if (moves==null)    // no need to generate the moves
+            return !BitBoardMoveGenerator.hasMove(white, black, kings, whiteToMove);
         return moves.isEmpty();
     }
 
+    /**
+     * generates the legal moves in this state as packed moves, without
+     * creating objects.
+     * @param moves buffer for the moves, preferably of length MAX_MOVES.
+     * @return number of moves stored in moves[0..]
+     * @see PackedMove
+     */
+    public int generateMoves(long[] moves) {
+        return moveGenerator.generateMoves(white, black, kings, whiteToMove, moves, 0);
+    }
+
+    /**
+     * generates the captures in this state as packed moves; there are none
+     * if the player to move does not have to capture.
+     * @param moves buffer for the moves, preferably of length MAX_MOVES.
+     * @return number of moves stored in moves[0..]
+     */
+    public int generateCaptures(long[] moves) {
+        return moveGenerator.generateCaptures(white, black, kings, whiteToMove, moves, 0);
+    }
+    
+    /**
+     * generates the moves without captures in this state as packed moves; 
+     * they are only legal if hasCapture() is false.
+     * @param moves buffer for the moves, preferably of length MAX_MOVES.
+     * @return number of moves stored in moves[0..]
+     */
+    public int generateQuietMoves(long[] moves) {
+        return moveGenerator.generateQuietMoves(white, black, kings, whiteToMove, moves, 0);
+    }
+    
+    /**
+     * @return whether or not the player to move has to capture; no moves are
+     * generated to find out.
+     */
+    public boolean hasCapture() {
+        return BitBoardMoveGenerator.hasCapture(white, black, kings, whiteToMove);
+    }
+
     /**
      *
      * @param m
      */
     @Override
     public void doMove(Move m) {
+        if (m.getFieldCount()==0) return; // BoardState ignores empty moves
         moves = null;      // invalidate moves
-        bs.moveForward(m);
+        long captureKings = 0;
+        for(int i=0; i<m.getCaptureCount(); i++) {
+            if (Draughts.isKing(m.getCapturedPiece(i))) captureKings |= 1L<<(m.getCapturedField(i)-1);
+        }
+        push(PackedMove.of(m), captureKings);
+        set(m.getBeginField(), EMPTY);
+        for(int i=0; i<m.getCaptureCount(); i++) {
+            set(m.getCapturedField(i), EMPTY);
+        }
+        set(m.getEndField(), m.getEndPiece());
+        switchPlayer();
     }
 
     /**
@@ -133,8 +291,399 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public void undoMove(Move m) {
+        if (m.getFieldCount()==0) return;
+        moves=null;             // invalidate cached moves
+        // m need not be the last move on the undo stack, e.g. after a clone
+        if (undoCount>0 && undoStack[(undoCount-1)*UNDO_SIZE]==PackedMove.of(m)) undoCount--;
+        set(m.getEndField(), EMPTY);
+        for(int i=0; i<m.getCaptureCount(); i++) {
+            set(m.getCapturedField(i), m.getCapturedPiece(i));
+        }
+        set(m.getBeginField(), m.getBeginPiece());
+        switchPlayer();
+    }
+    
+    /**
+     * applies packed move m in this state.
+     * @param m packed move, legal in this state
+     * @see PackedMove
+     */
+    public void doMove(long m) {
+        moves = null;      // invalidate moves
+        long previousHashKey = hashKey;
+        int piece = set(PackedMove.from(m), EMPTY);
+        long captureKings = 0;
+        for(long c=PackedMove.captures(m); c!=0; c&=c-1) {
+            int f = Long.numberOfTrailingZeros(c)+1;
+            if (Draughts.isKing(set(f, EMPTY))) captureKings |= 1L<<(f-1);
+        }
+        if (PackedMove.isPromotion(m)) piece = whiteToMove ? WHITEKING : BLACKKING;
+        set(PackedMove.to(m), piece);
+        switchPlayer();
+        
+        int i = push(m, captureKings);
+        undoStack[i+2] = previousHashKey;
+    }
+    
+    /**
+     * undoes the effect of packed move m; m must be the last move that has 
+     * been done in this state.
+     * @param m packed move
+     * @throws IllegalArgumentException if m is not the last move on the undo stack
+     * @see DraughtsState#undoMove() 
+     */
+    public void undoMove(long m) {
+        if (undoCount>0 && undoStack[(undoCount-1)*UNDO_SIZE]!=m) {
+            throw new IllegalArgumentException("not the last move: "+PackedMove.toString(m));
+        }
+        undoMove();
+    }
+    
+    /**
+     * undoes the last move that has been done in this state by doMove; the 
+     * move itself is not needed: it is on the undo stack of this state.
+     * @throws IllegalStateException if there is no move to undo, or if the 
+     * last move was a null move.
+     */
+    public void undoMove() {
+        if (undoCount==0) throw new IllegalStateException("no move to undo");
+        int i = (undoCount-1)*UNDO_SIZE;
+        long m = undoStack[i];
+        if (m==PackedMove.NONE) throw new IllegalStateException("last move is a null move");
+        undoCount--;
         moves=null;             // invalidate cached moves
-        bs.moveBackward(m);
+        whiteToMove = !whiteToMove;
+        int piece = set(PackedMove.to(m), EMPTY);
+        if (PackedMove.isPromotion(m)) piece = whiteToMove ? WHITEPIECE : BLACKPIECE;
+        long captureKings = undoStack[i+1];
+        for(long c=PackedMove.captures(m); c!=0; c&=c-1) {
+            int f = Long.numberOfTrailingZeros(c)+1;
+            boolean king = (captureKings & (1L<<(f-1)))!=0;
+            set(f, whiteToMove ? (king?BLACKKING:BLACKPIECE) : (king?WHITEKING:WHITEPIECE));
+        }
+        set(PackedMove.from(m), piece);
+        hashKey = undoStack[i+2];
+    }
+    
+    /**
+     * passes the turn to the other player without moving a piece. A null 
+     * move is not a legal move; it is meant for search techniques like null
+     * move pruning and threat detection.
+     * @see DraughtsState#undoNullMove() 
+     */
+    public void doNullMove() {
+        moves = null;
+        push(PackedMove.NONE, 0L);
+        switchPlayer();
+    }
+    
+    /**
+     * undoes the null move that was the last move done in this state.
+     * @throws IllegalStateException if the last move is not a null move
+     */
+    public void undoNullMove() {
+        if (undoCount==0 || undoStack[(undoCount-1)*UNDO_SIZE]!=PackedMove.NONE) {
+            throw new IllegalStateException("last move is not a null move");
+        }
+        moves = null;
+        whiteToMove = !whiteToMove;
+        hashKey = undoStack[(--undoCount)*UNDO_SIZE+2];
+    }
+    
+    /** 
+     * pushes move m on the undo stack, with the current hash key. 
+     * @return index of m on the stack
+     */
+    private int push(long m, long captureKings) {
+        int i = undoCount*UNDO_SIZE;
+        if (i==undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, 2*undoStack.length);
+        }
+        undoStack[i] = m;
+        undoStack[i+1] = captureKings;
+        undoStack[i+2] = hashKey;
+        undoCount++;
+        return i;
+    }
+    
+    /** 
+     * puts piece p on field f and updates the masks, piece lists and hash key.
+     * @return piece that was on field f
+     */
+    private int set(int f, int p) {
+        int old = pieces[f];
+        pieces[f] = p;
+        if (old!=EMPTY) remove(f, old);
+        if (p!=EMPTY) add(f, p);
+        return old;
+    }
+    
+    /** adds piece p on empty field f to the masks, piece lists and hash key. **/
+    private void add(int f, int p) {
+        long b = bit(f);
+        switch(p) {
+            case WHITEPIECE: white |= b; break;
+            case BLACKPIECE: black |= b; break;
+            case WHITEKING:  white |= b; kings |= b; break;
+            case BLACKKING:  black |= b; kings |= b; break;
+            default: return;
+        }
+        hashKey ^= ZOBRIST[p][f];
+        if (featureTable!=null) features += featureTable[p][f];
+        listIndex[f] = pieceCount[p];
+        pieceFields[p][pieceCount[p]++] = f;
+    }
+    
+    /** removes piece p on field f from the masks, piece lists and hash key. **/
+    private void remove(int f, int p) {
+        long b = bit(f);
+        white &= ~b; black &= ~b; kings &= ~b;
+        hashKey ^= ZOBRIST[p][f];
+        if (featureTable!=null) features -= featureTable[p][f];
+        // move the last field of the list into the hole
+        int last = pieceFields[p][--pieceCount[p]];
+        pieceFields[p][listIndex[f]] = last;
+        listIndex[last] = listIndex[f];
+    }
+    
+    private void switchPlayer() {
+        whiteToMove = !whiteToMove;
+        hashKey ^= ZOBRIST_BLACK_TO_MOVE;
+    }
+    
+    /** computes masks, piece lists and hash key from scratch. **/
+    private void initialize() {
+        white = black = kings = 0;
+        Arrays.fill(pieceCount, 0);
+        hashKey = whiteToMove ? 0 : ZOBRIST_BLACK_TO_MOVE;
+        features = 0;
+        for(int f=1; f<=50; f++) {
+            add(f, pieces[f]);
+        }
+        undoCount = 0;
+    }
+    
+    /**
+     * @param p one of {WHITEPIECE,BLACKPIECE,WHITEKING,BLACKKING}
+     * @return number of pieces p on the board
+     */
+    public int getPieceCount(int p) {
+        return pieceCount[p];
+    }
+    
+    /**
+     * returns the fields that contain piece p. Only the first getPieceCount(p) 
+     * entries are valid, in no particular order. The array is maintained by 
+     * this state: do not change it; its contents change when a move is done.
+     * @param p one of {WHITEPIECE,BLACKPIECE,WHITEKING,BLACKKING}
+     * @return fields with piece p
+     * @see DraughtsState#getPieceCount(int) 
+     */
+    public int[] getPieceFields(int p) {
+        return pieceFields[p];
+    }
+    
+    /**
+     * returns the fields that contain piece p as a mask with bit f-1 set for 
+     * field f, the layout of PackedMove.captures(long) and encode(long[], int).
+     * @param p one of {WHITEPIECE,BLACKPIECE,WHITEKING,BLACKKING}
+     * @return mask of the fields with piece p
+     */
+    public long getPieceMask(int p) {
+        switch(p) {
+            case WHITEPIECE: return BitBoardMoveGenerator.toFields(white & ~kings);
+            case BLACKPIECE: return BitBoardMoveGenerator.toFields(black & ~kings);
+            case WHITEKING:  return BitBoardMoveGenerator.toFields(white & kings);
+            case BLACKKING:  return BitBoardMoveGenerator.toFields(black & kings);
+            default: throw new IllegalArgumentException("no piece: " + p);
+        }
+    }
+    
+    /**
+     * sets the feature table of which the sum over all pieces is kept up to
+     * date by doMove and undoMove. The sum is computed from scratch here; 
+     * clones share the table. The table is not copied: do not change it 
+     * while it is in use.
+     * @param table table[p][f] is the value of piece p on field f, or null 
+     *        to stop keeping the sum
+     * @see DraughtsState#getFeatures() 
+     */
+    public void setFeatureTable(long[][] table) {
+        featureTable = table;
+        features = 0;
+        if (table!=null) {
+            for(int f=1; f<=50; f++) {
+                if (pieces[f]!=EMPTY) features += table[pieces[f]][f];
+            }
+        }
+    }
+    
+    /** @return the feature table of this state, or null. **/
+    public long[][] getFeatureTable() {
+        return featureTable;
+    }
+    
+    /**
+     * @return sum of featureTable[p][f] over all pieces p on fields f, 0 if
+     * no table is set
+     * @see DraughtsState#setFeatureTable(long[][]) 
+     */
+    public long getFeatures() {
+        return features;
+    }
+    
+    /**
+     * returns the 64-bit Zobrist hash key of this state. The key depends on
+     * the pieces on the board and the player to move, and it is updated
+     * incrementally by doMove and undoMove.
+     * @return hash key of this state
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+    
+    /** number of longs in the binary form of a state. @see DraughtsState#encode(long[], int) **/
+    final public static int ENCODED_SIZE = 3;
+    
+    /** bit of the third long of the binary form that is set if white is to move. **/
+    private static final long ENCODED_WHITE_TO_MOVE = 1L<<63;
+    
+    /**
+     * writes the binary form of this state in code[offset..offset+2]: the 
+     * white pieces, the black pieces and the kings, with bit f-1 set for 
+     * field f. Bit 63 of the third long is set if white is to move.
+     * @param code   array in which the state is stored
+     * @param offset index of the first long
+     */
+    public void encode(long[] code, int offset) {
+        code[offset] = BitBoardMoveGenerator.toFields(white);
+        code[offset+1] = BitBoardMoveGenerator.toFields(black);
+        code[offset+2] = BitBoardMoveGenerator.toFields(kings) | (whiteToMove ? ENCODED_WHITE_TO_MOVE : 0);
+    }
+    
+    /**
+     * sets this state to the binary form in code[offset..offset+2]. The rules
+     * and the undo stack are not changed.
+     * @param code   array with an encoded state
+     * @param offset index of the first long
+     * @see DraughtsState#encode(long[], int) 
+     */
+    public void decode(long[] code, int offset) {
+        long w = code[offset], b = code[offset+1], k = code[offset+2] & ~ENCODED_WHITE_TO_MOVE;
+        if ((w & b)!=0 || ((w | b | k) & ~PackedMove.CAPTURES)!=0 || (k & ~(w | b))!=0) {
+            throw new IllegalArgumentException("invalid encoded state");
+        }
+        for(int f=1; f<=50; f++) {
+            long m = 1L<<(f-1);
+            int p = (w & m)!=0 ? WHITEPIECE : (b & m)!=0 ? BLACKPIECE : EMPTY;
+            pieces[f] = (k & m)!=0 ? p+2 : p;   // WHITEKING = WHITEPIECE+2, BLACKKING = BLACKPIECE+2
+        }
+        whiteToMove = (code[offset+2] & ENCODED_WHITE_TO_MOVE)!=0;
+        moves = null;
+        initialize();
+    }
+    
+    /**
+     * returns this state in FEN notation as used in PDN files: the player to
+     * move, followed by the white and the black pieces, with a K in front of
+     * kings, e.g. "W:W31,32,K45:B1,2,3".
+     * @return FEN of this state
+     */
+    public String toFEN() {
+        StringBuilder sb = new StringBuilder(160);
+        sb.append(whiteToMove ? 'W' : 'B');
+        appendFEN(sb, 'W', WHITEPIECE, WHITEKING);
+        appendFEN(sb, 'B', BLACKPIECE, BLACKKING);
+        return sb.toString();
+    }
+    
+    private void appendFEN(StringBuilder sb, char color, int piece, int king) {
+        sb.append(':').append(color);
+        boolean first = true;
+        for(int f=1; f<=50; f++) {
+            if (pieces[f]==piece || pieces[f]==king) {
+                if (!first) sb.append(',');
+                if (pieces[f]==king) sb.append('K');
+                sb.append(f);
+                first = false;
+            }
+        }
+    }
+    
+    /**
+     * sets this state to the position in FEN notation. Ranges like W31-50 are
+     * allowed, as are spaces, quotes and a closing period. The rules and the 
+     * undo stack are not changed. The position is only changed if the whole
+     * of fen can be parsed.
+     * @param fen position, e.g. "B:W18,24,27,28,K10,K15:B12,16,20,K22,K25,K29"
+     * @throws IllegalArgumentException if fen can not be parsed, or if it 
+     * contains a field more than once
+     */
+    public void setFEN(CharSequence fen) {
+        int n = fen.length(), i = skip(fen, 0);
+        if (i>=n) throw new IllegalArgumentException("empty FEN");
+        char side = Character.toUpperCase(fen.charAt(i++));
+        if (side!='W' && side!='B') throw new IllegalArgumentException("FEN: no player to move: "+fen);
+        int[] parsed = new int[pieces.length];
+        Arrays.fill(parsed, EMPTY);
+        int piece = EMPTY;
+        while ((i=skip(fen, i)) < n) {
+            char c = Character.toUpperCase(fen.charAt(i));
+            if (c==':') {
+                i = skip(fen, i+1);
+                c = i<n ? Character.toUpperCase(fen.charAt(i)) : ' ';
+                if (c!='W' && c!='B') throw new IllegalArgumentException("FEN: no colour at "+i+": "+fen);
+                piece = c=='W' ? WHITEPIECE : BLACKPIECE;
+                i++;
+            } else if (c==',') {
+                i++;
+            } else if (c=='.') {
+                break;
+            } else {
+                if (piece==EMPTY) throw new IllegalArgumentException("FEN: no colour at "+i+": "+fen);
+                boolean king = c=='K';
+                if (king) i = skip(fen, i+1);
+                int first = 0, last;
+                int start = i;
+                while (i<n && Character.isDigit(fen.charAt(i))) first = 10*first + fen.charAt(i++)-'0';
+                if (i==start) throw new IllegalArgumentException("FEN: no field at "+i+": "+fen);
+                last = first;
+                if ((i=skip(fen, i))<n && fen.charAt(i)=='-') {
+                    i = start = skip(fen, i+1);
+                    last = 0;
+                    while (i<n && Character.isDigit(fen.charAt(i))) last = 10*last + fen.charAt(i++)-'0';
+                    if (i==start) throw new IllegalArgumentException("FEN: no field at "+i+": "+fen);
+                }
+                if (first<1 || last>50 || first>last) throw new IllegalArgumentException("FEN: invalid field at "+i+": "+fen);
+                for(int f=first; f<=last; f++) {
+                    if (parsed[f]!=EMPTY) throw new IllegalArgumentException("FEN: field "+f+" occurs twice: "+fen);
+                    parsed[f] = king ? piece+2 : piece;
+                }
+            }
+        }
+        System.arraycopy(parsed, 0, pieces, 0, pieces.length);
+        whiteToMove = side=='W';
+        moves = null;
+        initialize();
+    }
+    
+    /** @return index of the first character at or after i that is not a space or quote. **/
+    private static int skip(CharSequence s, int i) {
+        while (i<s.length() && (Character.isWhitespace(s.charAt(i)) || s.charAt(i)=='"')) i++;
+        return i;
+    }
+    
+    /**
+     * creates a draughts state for the position in FEN notation.
+     * @param fen position
+     * @param useKillerRules whether or not killer rules are used
+     * @return new state
+     * @see DraughtsState#setFEN(CharSequence) 
+     */
+    public static DraughtsState fromFEN(CharSequence fen, boolean useKillerRules) {
+        DraughtsState s = new DraughtsState(new BoardState(10,10), useKillerRules);
+        s.setFEN(fen);
+        return s;
     }
     
     /**
@@ -143,19 +692,20 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public String toString() {
+        BoardState bs = new BoardState(10,10);
+        bs.setPieces(pieces);
         return bs.toString()+"      w2m = "+ isWhiteToMove();
     }
     
     /** returns an array a of length 51: 
      * a[0] is unused; a[i] is one of {WHITE,BLACK,WHITE_KING,BLACK_KING,EMPTY}.
-     * Note that you can directly change this array to change this DraughtsState;
-     * however, you should normally do that using the moveBackward and moveForward methods.
+     * The array is a copy: changing it does not change this DraughtsState.
      * @return state of the board as an int array.
      * @see DraughtsState#doMove(Move)
      * @see DraughtsState#undoMove(Move) 
      */
     public int[] getPieces() {
-        return bs.getPieces();
+        return pieces.clone();
     }
     
     /** @return piece at field f 
@@ -167,7 +717,7 @@ public class DraughtsState implements GameState<Move> {
      **/
     public int getPiece(int f) {
         if (f<1 || f > 50) throw new IllegalArgumentException();
-        return bs.getPiece(f);
+        return pieces[f];
     }
     
     /** @return one of {WHITE,BLACK,WHITE_PIECE,BLACK_PIECE,EMPTY}
@@ -175,9 +725,19 @@ public class DraughtsState implements GameState<Move> {
      * @param c column
      **/
     public int getPiece(int r, int c) {
-        int f = bs.rc2f(r, c);
+        int f = rc2f(r, c);
         if (f==-1) throw new IllegalArgumentException();
-        return bs.getPiece(f);
+        return pieces[f];
+    }
+    
+    /** 
+     * @return field number of row r and column c as BoardState.rc2f: 0 for 
+     * a white field (pieces[0] is always EMPTY) and -1 outside the board.
+     **/
+    private static int rc2f(int r, int c) {
+        if (r<0 || c<0 || r>=10 || c>=10) return -1;
+        if (r%2==c%2) return 0;
+        return 1 + r*5 + c/2;
     }
 
     /**
@@ -186,7 +746,7 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public boolean isWhiteToMove() {
-        return bs.isWhiteToMove();
+        return whiteToMove;
     }
 
     /**
@@ -195,7 +755,9 @@ public class DraughtsState implements GameState<Move> {
     @Override
     public void reset() {
         moves=null;       // invalidate cached moves
-        bs.setBegin();
+        System.arraycopy(BEGIN, 0, pieces, 0, BEGIN.length);
+        whiteToMove = true;
+        initialize();
     }
 
     @Override
@@ -10,8 +10,12 @@ import org10x10.dam.game.MoveFilter;
 import org10x10.dam.game.MoveFilterMaximumCapture;
 
 /**
- *
+ * Filters killer moves out of all international draughts moves. 
+ * MyMoveGeneratorFactory.create no longer uses this filter, because 
+ * BitBoardBackedMoveGenerator only generates the killer moves. It is kept as a
+ * reference, see MyMoveGeneratorFactory.createLibrary.
  * @author huub
+ * @see BitBoardBackedMoveGenerator
  */
 public class MoveFilterKiller implements MoveFilter {
     BoardState bs;
@@ -10,7 +10,23 @@ import org10x10.dam.game.MoveGenerator;
  */
 public class MyMoveGeneratorFactory {
     
+    /**
+     * creates a generator backed by the bitboard generator, for both rule
+     * sets, so that it gives the same moves as DraughtsState. Note that
+     * these differ from the moves of createLibrary(), see
+     * BitBoardBackedMoveGenerator.
+     */
     public static MoveGenerator create(BoardState bs, boolean useKillerRules) {
+         return new BitBoardBackedMoveGenerator(useKillerRules);
+    }
+
+    /**
+     * creates the generator of the library, with the killer moves filtered out
+     * of the international moves by MoveFilterKiller. It is slower than
+     * create(), but independent of the bitboard generator, so it can be used
+     * to check that one.
+     */
+    public static MoveGenerator createLibrary(BoardState bs, boolean useKillerRules) {
          if (useKillerRules) {
              boolean longMoves=true;
              boolean backwardsCapture=true;
@@ -0,0 +1,99 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.List;
+import org10x10.dam.game.Move;
+
+/**
+ * Helper methods for moves that are packed in a single long, so that search
+ * code can work with primitive move buffers instead of Move objects.
+ * <blockquote><pre>
+ *   bits  0-49  captured fields: bit f-1 is set if the piece on field f is captured
+ *   bits 50-55  begin field
+ *   bits 56-61  end field
+ *   bit     62  promotion flag: a piece becomes a king
+ * </pre></blockquote>
+ * The packed form does not contain the intermediate fields of a capture, nor
+ * the captured piece types; these follow from the state in which the move is
+ * played. Two moves that are equal according to Move#equals have the same
+ * packed form.
+ * @see DraughtsState#generateMoves(long[])
+ */
+public class PackedMove {
+    /** value that never is a valid packed move. **/
+    public static final long NONE = 0L;
+
+    /** mask of the captured fields. **/
+    public static final long CAPTURES = (1L << 50) - 1;
+
+    private static final int FROM = 50, TO = 56;
+    private static final long PROMOTION = 1L << 62;
+
+    /**
+     * @param from       begin field
+     * @param to         end field
+     * @param captures   captured fields, bit f-1 for field f
+     * @param promotion  whether or not the moving piece becomes a king
+     * @return packed move
+     */
+    public static long of(int from, int to, long captures, boolean promotion) {
+        return captures | (long) from << FROM | (long) to << TO | (promotion ? PROMOTION : 0L);
+    }
+
+    /** @return packed form of move m. **/
+    public static long of(Move m) {
+        long captures = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            captures |= 1L << (m.getCapturedField(i) - 1);
+        }
+        return of(m.getBeginField(), m.getEndField(), captures, m.getBeginPiece() != m.getEndPiece());
+    }
+
+    /** @return begin field of packed move m. **/
+    public static int from(long m) {
+        return (int) (m >>> FROM) & 0x3F;
+    }
+
+    /** @return end field of packed move m. **/
+    public static int to(long m) {
+        return (int) (m >>> TO) & 0x3F;
+    }
+
+    /** @return captured fields of packed move m, bit f-1 for field f. **/
+    public static long captures(long m) {
+        return m & CAPTURES;
+    }
+
+    /** @return number of pieces captured by packed move m. **/
+    public static int captureCount(long m) {
+        return Long.bitCount(m & CAPTURES);
+    }
+
+    /** @return whether or not packed move m captures pieces. **/
+    public static boolean isCapture(long m) {
+        return (m & CAPTURES) != 0;
+    }
+
+    /** @return whether or not the moving piece of packed move m becomes a king. **/
+    public static boolean isPromotion(long m) {
+        return (m & PROMOTION) != 0;
+    }
+
+    /**
+     * finds the Move object for packed move m in state s.
+     * @param m packed move
+     * @param s state in which m is a legal move
+     * @return the legal move of s that equals m, or null if there is none.
+     */
+    public static Move toMove(long m, DraughtsState s) {
+        List<Move> moves = s.getMoves();
+        for (Move move : moves) {
+            if (of(move) == m) return move;
+        }
+        return null;
+    }
+
+    /** @return notation of packed move m, like 32-28 or 19x30. **/
+    public static String toString(long m) {
+        return from(m) + (isCapture(m) ? "x" : "-") + to(m);
+    }
+}
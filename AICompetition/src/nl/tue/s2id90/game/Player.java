@@ -18,6 +18,19 @@ public interface Player<Move,State extends GameState<Move>>  extends Identity
      **/
     Move getMove(State s);
     
+    /** computes a valid move in the given game state s within the given limits.
+     * The caller still calls stop() when the deadline of the limits has passed.
+     * This default implementation ignores the limits and calls getMove(s), a
+     * player that plans its own time should override it.
+     * @param s game state
+     * @param limits budget for this move, see SearchLimits
+     * @return a valid move in State s.
+     * @see getMove(GameState)
+     **/
+    default Move getMove(State s, SearchLimits limits) {
+        return getMove(s);
+    }
+    
     /** @return the computed value of the last Move. Returns null if that value
       * is not available.
      **/
@@ -30,4 +43,40 @@ public interface Player<Move,State extends GameState<Move>>  extends Identity
     
     /** @return whether or not this is a human player **/
     boolean isHuman();
+    
+    /** @return the move this player expects the opponent to do after its last
+     * move, or null if it does not want to think on the time of the opponent.
+     * This default implementation returns null, a player that ponders should
+     * override it together with the ponder methods.
+     * @see ponderStart(GameState, Object)
+     **/
+    default Move getExpectedMove() {
+        return null;
+    }
+    
+    /** called when the opponent starts thinking in state s, so this player can
+     * think on the time of the opponent (ponder) assuming the opponent does
+     * expectedMove. Exactly one of ponderHit() and ponderMiss() is called
+     * when the opponent has moved. This default implementation does nothing.
+     * @param s game state in which the opponent is to move; it is the state of
+     *        the caller, so the player must not change it and has to clone it
+     *        if it needs it after this call
+     * @param expectedMove move as returned by getExpectedMove()
+     **/
+    default void ponderStart(State s, Move expectedMove) {
+    }
+    
+    /** called when the opponent did the expected move. The next call is
+     * getMove() for the state after that move. This default implementation
+     * does nothing.
+     **/
+    default void ponderHit() {
+    }
+    
+    /** called when the opponent did another move, or when the game is over.
+     * The player should stop pondering as soon as possible. This default
+     * implementation does nothing.
+     **/
+    default void ponderMiss() {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package nl.tue.s2id90.game;
+
+import lombok.Getter;
+
+/**
+ * the budget of a single call to Player.getMove(). A value of 0 means that there
+ * is no such limit. SearchLimits are immutable, use the with methods to make a
+ * copy with another limit.
+ * <pre>
+ *   SearchLimits.moveTime(2000)                        // at most 2 seconds
+ *   SearchLimits.NONE.withDepth(10)                    // exactly 10 plies, reproducible
+ *   SearchLimits.NONE.withNodes(1000000)               // at most a million nodes, reproducible
+ *   SearchLimits.NONE.withGameTime(60000, 1000)        // a clock with a minute left and 1 second per move
+ * </pre>
+ * @author huub
+ */
+public final class SearchLimits {
+    /** no limits at all, the search only ends when stop() is called. **/
+    public static final SearchLimits NONE = new SearchLimits();
+
+    /** absolute deadline in System.nanoTime() units. **/
+    @Getter private long deadline;
+    /** maximum number of nodes. **/
+    @Getter private long nodes;
+    /** maximum search depth in plies. **/
+    @Getter private int depth;
+    /** time left on the clock of the player in milliseconds. **/
+    @Getter private long timeLeft;
+    /** time added to the clock after each move in milliseconds. **/
+    @Getter private long increment;
+    /** number of moves already made in the game. **/
+    @Getter private int moveNumber;
+
+    private SearchLimits() {}
+
+    private SearchLimits copy() {
+        SearchLimits l = new SearchLimits();
+        l.deadline = deadline; l.nodes = nodes; l.depth = depth;
+        l.timeLeft = timeLeft; l.increment = increment; l.moveNumber = moveNumber;
+        return l;
+    }
+
+    /** @return limits with a deadline the given number of milliseconds from now. **/
+    public static SearchLimits moveTime(long milliSeconds) {
+        return NONE.withDeadline(System.nanoTime() + milliSeconds * 1000000L);
+    }
+
+    /** @return copy of these limits with the given absolute deadline in System.nanoTime() units. **/
+    public SearchLimits withDeadline(long deadline) {
+        SearchLimits l = copy(); l.deadline = deadline; return l;
+    }
+
+    /** @return copy of these limits with the given node budget. **/
+    public SearchLimits withNodes(long nodes) {
+        SearchLimits l = copy(); l.nodes = nodes; return l;
+    }
+
+    /** @return copy of these limits with the given maximum depth. **/
+    public SearchLimits withDepth(int depth) {
+        SearchLimits l = copy(); l.depth = depth; return l;
+    }
+
+    /** @return copy of these limits with the given clock of the player. **/
+    public SearchLimits withGameTime(long timeLeft, long increment) {
+        SearchLimits l = copy(); l.timeLeft = timeLeft; l.increment = increment; return l;
+    }
+
+    /** @return copy of these limits with the given move number. **/
+    public SearchLimits withMoveNumber(int moveNumber) {
+        SearchLimits l = copy(); l.moveNumber = moveNumber; return l;
+    }
+
+    /** @return whether or not there is a deadline. **/
+    public boolean hasDeadline() {
+        return deadline != 0;
+    }
+
+    /** @return milliseconds until the deadline, 0 if it passed, Long.MAX_VALUE if there is no deadline. **/
+    public long timeToDeadline() {
+        if (!hasDeadline()) return Long.MAX_VALUE;
+        return Math.max(0, (deadline - System.nanoTime()) / 1000000L);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SearchLimits[deadline in %s ms, nodes=%d, depth=%d, time left=%d+%d ms, move %d]",
+                hasDeadline() ? timeToDeadline() : "-", nodes, depth, timeLeft, increment, moveNumber);
+    }
+}
@@ -47,6 +47,7 @@ import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 import nl.tue.s2id90.draughts.player.HumanPlayer;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchLimits;
 import org10x10.dam.game.Move;
 
 /**
@@ -167,9 +168,19 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
         List<M> moves = new ArrayList<>(); // start with empty move list
         int index = atomicIndex.addAndGet(1);               // increase match index
         int moveCount=0;                   // number of moves made
+        P ponderer = null;                 // player that thinks on the time of its opponent
+        M expectedMove = null;             // move the ponderer expects
         while (moveCount<maxMove && !state.isEndState()) {
             P player = (state.isWhiteToMove()?p0:p1);                // current player
-            M move = getComputerMove(player, state, maxTimeinMS);    // get move 
+            SearchLimits limits = SearchLimits.moveTime(maxTimeinMS).withMoveNumber(moveCount);
+            M move = getComputerMove(player, state, limits);         // get move 
+            
+            // tell the opponent whether it pondered on the right move
+            if (ponderer!=null) {
+                if (move!=null && move.equals(expectedMove)) ponderer.ponderHit();
+                else ponderer.ponderMiss();
+                ponderer = null;
+            }
             
             // check for illegal moves
             if (move==null||!state.getMoves().contains(move)) { // illegal move
@@ -185,7 +196,15 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
             
             // increase move count
             moveCount++;
+            
+            // let the player think on the time of its opponent
+            expectedMove = player.getExpectedMove();
+            if (expectedMove!=null && moveCount<maxMove && !state.isEndState()) {
+                ponderer = player;
+                ponderer.ponderStart(state, expectedMove);
+            }
         }
+        if (ponderer!=null) ponderer.ponderMiss();
         
         if (state.isEndState()) { // player who is to move, looses the game
                 return state.isWhiteToMove()
@@ -196,20 +215,20 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
         }
     }
     
-    /** get computer move of player p in game state gs and with 
-     *  maxTime milliseconds computing time.
+    /** get computer move of player p in game state gs within the given 
+     *  search limits.
      * 
      * @param player     player who is to Move
      * @param gs         game state
-     * @param maxTime    maximum time for computing the move in milliseconds
+     * @param limits     budget for computing the move, the search is stopped at its deadline
      * @return           computed Move
      */
-    private M getComputerMove(final Player player, final S gs, final int maxTime) {
+    private M getComputerMove(final Player player, final S gs, final SearchLimits limits) {
         Semaphore flag = new Semaphore(0);  // semaphore that is released when move is found
         Object[] moves= new Object[1];      // create array to store search result
         SearchTask<M, Long, S> searchTask;  // Search task that computes next move in state gs
-                                            // for player taking atmost maxTime milliseconds.
-        searchTask = new TimedSearchTask<M, Long, S>(player, gs, maxTime) {
+                                            // for player within the given limits.
+        searchTask = new TimedSearchTask<M, Long, S>(player, gs, limits) {
             // when searching is finished, store result in array moves and release semaphore.
             @Override public void done(M m) { moves[0]=m; flag.release(); }
         };
@@ -0,0 +1,254 @@
+package nl.tue.s2id90.tournament;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MyMoveGeneratorFactory;
+import nl.tue.s2id90.draughts.PackedMove;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+
+/**
+ * counts the leaf nodes of the game tree up to a given depth, to check the
+ * move generators against known counts and to measure their speed.
+ * <pre>
+ *   Perft [-international] [-divide] [-library] [-threads n] depth [fen]
+ *   Perft [-international] [-threads n] -verify
+ * </pre>
+ * <ul>
+ * <li> -international: use international rules instead of killer rules
+ * <li> -divide: print the count below each root move
+ * <li> -library: compare the packed moves of every position in which moves
+ *      are generated with the moves of the library generator (for killer
+ *      rules filtered by MoveFilterKiller, see
+ *      MyMoveGeneratorFactory.createLibrary), as sets of begin field, end
+ *      field, captured fields and promotion. Every mismatch is printed.
+ *      The library is not a valid reference for all positions: in a king
+ *      capture it can count the start field the king has just left as a
+ *      captured piece, and with killer rules MoveFilterKiller then looks at
+ *      the wrong last captured piece and can return no moves at all.
+ *      Positions in which the library lists the start field of a move as
+ *      captured are therefore not compared, but only counted as skipped.
+ *      The nodes are always counted with the packed moves.
+ * <li> -threads n: number of threads that count the root moves (default: all processors)
+ * <li> -verify: check the counts of the start position against the known
+ *      values in START_COUNTS; the exit status is 1 if one of them differs
+ * <li> fen: position in PDN FEN notation, e.g. "W:W31-50:B1-20" (default: start position)
+ * </ul>
+ * At the last ply the moves are counted instead of played (bulk counting).
+ */
+public class Perft {
+    /**
+     * known {depth, nodes} of the start position, the same for both rule sets
+     * since no king can be made within 8 plies.
+     */
+    static final long[][] START_COUNTS = {{6, 167140}, {8, 6483961}};
+
+    private final boolean useKillerRules;
+    private final boolean library;
+
+    /** positions compared with the library, skipped because of the library bug, and differing. **/
+    private final LongAdder compared = new LongAdder(), skipped = new LongAdder(), mismatches = new LongAdder();
+
+    public static void main(String[] args) {
+        boolean killer = true, divide = false, library = false, verify = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = -1;
+        String fen = null;
+        for(int i=0; i<args.length; i++) {
+            switch(args[i]) {
+                case "-international": killer = false; break;
+                case "-divide": divide = true; break;
+                case "-library": library = true; break;
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-verify": verify = true; break;
+                default:
+                    if (depth<0) depth = Integer.parseInt(args[i]);
+                    else fen = args[i];
+            }
+        }
+        if (verify) {
+            System.exit(new Perft(killer, false).verify(threads) ? 0 : 1);
+        }
+        if (depth<0) {
+            System.err.println("usage: Perft [-international] [-divide] [-library] [-threads n] depth [fen]");
+            System.err.println("       Perft [-international] [-threads n] -verify");
+            return;
+        }
+        DraughtsState s = fen==null ? new DraughtsState() : DraughtsState.fromFEN(fen, killer);
+        BoardState bs = new BoardState(10,10);
+        bs.setPieces(s.getPieces());
+        bs.setWhiteToMove(s.isWhiteToMove());
+        new Perft(killer, library).go(bs, depth, divide, threads);
+    }
+
+    public Perft(boolean useKillerRules, boolean library) {
+        this.useKillerRules = useKillerRules;
+        this.library = library;
+    }
+
+    /** @return whether the counts of the start position match START_COUNTS. **/
+    boolean verify(int threads) {
+        boolean ok = true;
+        for(long[] known : START_COUNTS) {
+            BoardState bs = new BoardState(10,10);
+            bs.setPieces(new DraughtsState().getPieces());
+            bs.setWhiteToMove(true);
+            long nodes = go(bs, (int) known[0], false, threads);
+            if (nodes!=known[1]) {
+                System.out.format("FAILED: depth %d should have %d nodes\n", known[0], known[1]);
+                ok = false;
+            }
+        }
+        System.out.println(ok ? "all counts ok" : "counts differ");
+        return ok;
+    }
+
+    /** @return number of leaf nodes at the given depth below bs. **/
+    long go(BoardState bs, int depth, boolean divide, int threads) {
+        System.out.format("%s rules, %s, depth %d, %d threads\n%s\n",
+                useKillerRules ? "killer" : "international",
+                library ? "compared with the library generator" : "packed moves",
+                depth, threads, bs);
+        long start = System.nanoTime();
+        List<RootMove> roots = rootMoves(bs, depth);
+        long nodes;
+        if (depth==0) {
+            nodes = 1;
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                nodes = 0;
+                for(RootMove r : pool.submit(() -> RecursiveTask.invokeAll(roots)).join()) {
+                    nodes += r.join();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long time = System.nanoTime()-start;
+        if (divide) {
+            for(RootMove r : roots) {
+                System.out.format("%-10s %d\n", r.name, r.join());
+            }
+        }
+        System.out.format("depth %d: %d nodes in %.3f s, %.0f nodes/s\n",
+                depth, nodes, time/1e9, nodes/(time/1e9));
+        if (library) {
+            System.out.format("%d positions compared with the library, %d skipped (library bug), %d mismatches\n",
+                    compared.sum(), skipped.sum(), mismatches.sum());
+        }
+        return nodes;
+    }
+
+    private List<RootMove> rootMoves(BoardState bs, int depth) {
+        List<RootMove> roots = new ArrayList<>();
+        if (depth==0) return roots;
+        DraughtsState s = new DraughtsState(bs, useKillerRules);
+        long[] moves = new long[DraughtsState.MAX_MOVES];
+        int n = s.generateMoves(moves);
+        if (library) compareWithLibrary(s, moves, n);
+        for(int i=0; i<n; i++) {
+            long m = moves[i];
+            roots.add(new RootMove(PackedMove.toString(m), () -> {
+                DraughtsState child = s.clone();
+                child.doMove(m);
+                long[][] buffers = new long[depth][DraughtsState.MAX_MOVES];
+                return library ? check(child, depth-1, buffers) : perft(child, depth-1, buffers);
+            }));
+        }
+        return roots;
+    }
+
+    /** @return number of leaf nodes at the given depth below state s. **/
+    public static long perft(DraughtsState s, int depth, long[][] buffers) {
+        if (depth==0) return 1;
+        long[] moves = buffers[depth-1];
+        int n = s.generateMoves(moves);
+        if (depth==1) return n;     // bulk counting
+        long nodes = 0;
+        for(int i=0; i<n; i++) {
+            s.doMove(moves[i]);
+            nodes += perft(s, depth-1, buffers);
+            s.undoMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * counts like perft(), but first compares the moves of every position in
+     * which moves are generated with those of the library generator.
+     */
+    private long check(DraughtsState s, int depth, long[][] buffers) {
+        if (depth==0) return 1;
+        long[] moves = buffers[depth-1];
+        int n = s.generateMoves(moves);
+        compareWithLibrary(s, moves, n);
+        if (depth==1) return n;
+        long nodes = 0;
+        for(int i=0; i<n; i++) {
+            s.doMove(moves[i]);
+            nodes += check(s, depth-1, buffers);
+            s.undoMove();
+        }
+        return nodes;
+    }
+
+    /** compares the n packed moves of s with the moves of the library generator. **/
+    private void compareWithLibrary(DraughtsState s, long[] moves, int n) {
+        BoardState bs = new BoardState(10,10);
+        bs.setPieces(s.getPieces());
+        bs.setWhiteToMove(s.isWhiteToMove());
+        // look for the bug in the unfiltered international moves, because
+        // MoveFilterKiller may drop the affected moves
+        for(Move m : MyMoveGeneratorFactory.createLibrary(bs, false).generateMoves(bs)) {
+            if (capturesStartField(m)) {
+                skipped.increment();
+                return;
+            }
+        }
+        Set<Long> expected = new HashSet<>();
+        for(Move m : MyMoveGeneratorFactory.createLibrary(bs, useKillerRules).generateMoves(bs)) {
+            expected.add(PackedMove.of(m));
+        }
+        Set<Long> actual = new HashSet<>();
+        for(int i=0; i<n; i++) actual.add(moves[i]);
+        compared.increment();
+        if (!actual.equals(expected)) {
+            mismatches.increment();
+            System.out.format("mismatch in %s: %d packed moves, %d library moves\n",
+                    s.toFEN(), actual.size(), expected.size());
+        }
+    }
+
+    /** @return whether the library lists the begin field of m as a captured field. **/
+    private static boolean capturesStartField(Move m) {
+        for(int i=0; i<m.getCaptureCount(); i++) {
+            if (m.getCapturedField(i)==m.getBeginField()) return true;
+        }
+        return false;
+    }
+
+    /** counts the nodes below one root move. **/
+    private static class RootMove extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        interface Counter { long count(); }
+        final String name;
+        final Counter counter;
+
+        RootMove(String name, Counter counter) {
+            this.name = name;
+            this.counter = counter;
+        }
+
+        @Override
+        protected Long compute() {
+            return counter.count();
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org10x10.dam.game.Move;
 public class DraughtsNode {
     private final DraughtsState state;
     private Move move;
+    private long packedMove;
     public DraughtsNode(DraughtsState s) {
         this.state = s;
     }
@@ -29,4 +30,13 @@ public class DraughtsNode {
     public Move getBestMove() {
         return move;
     }
+    
+    /** stores the best move in packed form. @see nl.tue.s2id90.draughts.PackedMove **/
+    public void setBestMove(long m) {
+        this.packedMove = m;
+    }
+    
+    public long getBestPackedMove() {
+        return packedMove;
+    }
 }
@@ -0,0 +1,116 @@
+package nl.tue.s2id90.group11;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A direct-mapped cache of evaluations, stored in a single long array so that
+ * lookups and stores do not create objects. Every entry takes two longs: a
+ * check and the score. The check is the hash key xor the score, so an entry of
+ * which the longs were written by different threads is not recognized and
+ * counts as a miss, like in the TranspositionTable. A new score simply replaces
+ * the one in its slot.
+ * The scores depend on the weights of the player, so the cache has to be
+ * cleared when they change.
+ */
+public class EvaluationCache {
+    //The result of a probe that missed, never a valid result because the found bit is not set
+    public static final long NONE = 0L;
+    private static final long FOUND = 1L << 32;
+
+    private final long[] table;
+    private final long mask;
+    //The number of probes and of probes that hit, they are counted by all threads that use the cache
+    //Counting costs time in every probe, so it is only done when the numbers are reported
+    private volatile boolean counting = false;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Create a cache that takes about the given number of megabytes
+     * @param megabytes the size of the cache, at least 1
+     */
+    public EvaluationCache(int megabytes) {
+        long bytes = (long) Math.max(1, megabytes) << 20;
+        //The number of entries is the largest power of 2 that fits
+        long entries = Long.highestOneBit(bytes / 16);
+        entries = Math.min(entries, Integer.highestOneBit(Integer.MAX_VALUE / 2));
+        table = new long[(int) entries * 2];
+        mask = entries - 1;
+    }
+
+    /**
+     * Look up the evaluation of a state
+     * @param key the hash key of the state
+     * @return the result, use score() to get the evaluation, or NONE if the state is not in the cache
+     */
+    public long probe(long key) {
+        boolean count = counting;
+        if (count) {
+            probes.increment();
+        }
+        int i = (int) (key & mask) * 2;
+        long result = table[i + 1];
+        if ((table[i] ^ result) != key || result == NONE) {
+            return NONE;
+        }
+        if (count) {
+            hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Store the evaluation of a state
+     * @param key the hash key of the state
+     * @param score the evaluation
+     */
+    public void store(long key, int score) {
+        int i = (int) (key & mask) * 2;
+        long result = FOUND | (score & 0xFFFFFFFFL);
+        table[i] = key ^ result;
+        table[i + 1] = result;
+    }
+
+    //Get the evaluation of a result
+    public static int score(long result) {
+        return (int) result;
+    }
+
+    /**
+     * Remove all entries, and reset the counts
+     */
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+        resetCounts();
+    }
+
+    /**
+     * Turn the counting of probes and hits on or off
+     * @param counting true to count, the counts are not reset
+     */
+    public void setCounting(boolean counting) {
+        this.counting = counting;
+    }
+
+    //Set the number of probes and hits back to 0
+    public void resetCounts() {
+        probes.reset();
+        hits.reset();
+    }
+
+    //Get the number of probes since the counts were reset, 0 if they are not counted
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    //Get the part of the probes that hit, between 0 and 1
+    public double getHitRate() {
+        long p = probes.sum();
+        return p == 0 ? 0 : (double) hits.sum() / p;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("evaluation cache: %d entries, %.1f%% of %d probes hit", table.length / 2, 100 * getHitRate(), getProbes());
+    }
+}
@@ -1,15 +1,22 @@
 package nl.tue.s2id90.group11;
 
-import static java.lang.Integer.MAX_VALUE;
-import static java.lang.Integer.MIN_VALUE;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 import nl.tue.s2id90.draughts.DraughtsState;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKKING;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKPIECE;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEKING;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEPIECE;
+import nl.tue.s2id90.draughts.PackedMove;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.SearchLimits;
 import org10x10.dam.game.Move;
 
 /**
@@ -24,17 +31,109 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
     //Current best vale
     private int bestValue = 0;
     
-    //A list of transpostiontables so the one of the previous depth can still be used
-    List<HashMap<Integer, returnObject>> TransPositionTables = new ArrayList<HashMap<Integer, returnObject>>();
-    //The transpostiontable of the current depth
-    HashMap<Integer, returnObject> TransPositionTable = new HashMap<Integer, returnObject>();
-    //The transpostitiontable of the last depth
-    HashMap<Integer, returnObject> PreviousTransPositionTable = new HashMap<Integer, returnObject>();
+    //The size of the transposition table in megabytes
+    int transpositionTableSize = 64;
+    //The transposition table, it is created once and kept over all itterations and moves, so the results of the previous itteration are still in it
+    TranspositionTable TransPositionTable = null;
+    //The size of the evaluation cache in megabytes, 0 to not use it
+    //The cache is shared with the helpers like the transposition table, and is cleared when the weights changed since the last search
+    int evaluationCacheSize = 8;
+    EvaluationCache evaluationCache = null;
+    long evaluationCacheWeights = 0;
+    //boolean to print the statistics of each itteration: depth, best move, value, nodes and the hit rate of the evaluation cache
+    //The evaluation cache only counts its probes and hits when they are printed
+    boolean searchStatistics = false;
     //An history heuristic list, this gives each possible move a score based upon the amount of times it is chosen as best move in order to order the moves better and optimize alphabeta
     //It is an int[2][51][51] because there are 50 (+1) fields to start and end, and 2 colors the move could be made from (Although it is rare that white and black do the same move, it can happen espeically with kings)
     int[][][] HistoryHeuristic = new int[2][51][51];
-    //A list of the best moves of the previous depth in order to optimize alphabeta
-    List<Move> previousBestMoves = null;
+    //Two killer moves per depth: quiet moves that caused a cut off in another state at the same depth, the newest one first
+    long[][] killerMoves = new long[MAX_PLY][2];
+    //The counter moves: the move that caused a cut off as an answer to the move of the opponent, indexed like the HistoryHeuristic by the move of the opponent
+    long[][][] counterMoves = new long[2][51][51];
+    //The moves that lead to the current state, playedMoves[depth] is the move done at depth
+    final long[] playedMoves = new long[MAX_PLY];
+    //The best moves of the previous depth (the principal variation) in order to optimize alphabeta
+    long[] previousBestMoves = new long[MAX_PLY];
+    int previousBestMovesLength = 0;
+    
+    //The maximum number of plies the search can go deep, captures are always searched after maxDepth but there are at most 40 of them
+    static final int MAX_PLY = 128;
+    //The score of a lost state, it is far from MIN_VALUE so it can be negated and a window can be put around it without overflowing
+    static final int INFINITY = 1000000000;
+    //The triangular principal variation array, row depth holds the best moves from that depth on and is filled while the search returns
+    //Row depth only needs MAX_PLY - depth entries, because the moves above it are in the rows above
+    final long[][] principalVariation = new long[MAX_PLY][];
+    final int[] principalVariationLength = new int[MAX_PLY];
+    
+    //Move buffers per depth, so that the search does not create move objects or lists. Moves are packed in a long, see PackedMove
+    //The buffers grow when the search goes deeper than before
+    long[][] moveBuffers = new long[32][];
+    //The order scores of the moves in the buffer of the same depth, each move is scored once and the moves are selected lazily
+    long[][] orderKeys = new long[32][];
+    
+    //The feature table that the states keep the sums of while moves are done and undone, so the evaluation does not have to loop over the pieces
+    //The sums are packed in one long with 8 bits per feature: the tempi of white and black, and the men of white and black on the left, middle and right columns
+    //A feature can never get above 255, because there are at most 20 men of a color and a man is at most 10 rows forward
+    static final long[][] FEATURES = new long[5][51];
+    static final int WHITE_TEMPI = 0;
+    static final int BLACK_TEMPI = 1;
+    static final int WHITE_LEFT = 2;
+    static final int BLACK_LEFT = 5;
+    //boolean to check every incremental evaluation against the evaluation from scratch, this is slow and only meant for testing
+    boolean verifyEvaluation = false;
+    
+    //The pattern tables of the structural evaluation terms, they are generated from the rules of the terms when the class is loaded
+    //The board regions are masks with bit f-1 for field f, like the masks of the state, so a term is a few table reads and mask tests
+    //The piece spread score of a side for each number of men on the left, middle and right columns, indexed by (left * 21 + middle) * 21 + right
+    static final int[] SPREAD_SCORES = new int[21 * 21 * 21];
+    //The fields on which a man can be the middle of a formation of 3, and for each of them the two other fields of its two formations
+    static final long FORMATION_FIELDS;
+    static final long[][] FORMATIONS = new long[51][2];
+    //The fields on which a man of white or black can be an outpost, and for each of them the fields from which it is backed up
+    static final long BOARD_FIELDS = fields(1, 50);
+    static final long WHITE_OUTPOST_FIELDS = fields(11, 25);
+    static final long BLACK_OUTPOST_FIELDS = fields(31, 40);
+    static final long[] OUTPOST_SUPPORT = new long[51];
+    //The center pieces score for each combination of a black man on field 3 (bit 0) and a white man on field 48 (bit 1)
+    static final int CENTER_WEIGHT = 10;
+    static final int[] CENTER_SCORES = new int[4];
+    
+    static {
+        for(int f = 1; f <= 50; f++){
+            FEATURES[WHITEPIECE][f] = feature(WHITE_TEMPI, (51 - f) / 5) + feature(WHITE_LEFT + SpreadColumn(f), 1);
+            FEATURES[BLACKPIECE][f] = feature(BLACK_TEMPI, f / 5) + feature(BLACK_LEFT + SpreadColumn(f), 1);
+        }
+        for(int left = 0; left <= 20; left++){
+            for(int middle = 0; middle <= 20; middle++){
+                for(int right = 0; right <= 20; right++){
+                    SPREAD_SCORES[(left * 21 + middle) * 21 + right] = PieceSpreadScore(left, middle, right);
+                }
+            }
+        }
+        //The same fields as FormationCount and OutPostScore check
+        long formationFields = 0;
+        for(int i = 6; i < 46; i++){
+            if(i%10 != 6 && i%10 != 5){
+                formationFields |= field(i);
+                if(((i-1)/5)%2 == 0){
+                    FORMATIONS[i][0] = field(i-6) | field(i+5);
+                    FORMATIONS[i][1] = field(i-5) | field(i+4);
+                } else {
+                    FORMATIONS[i][0] = field(i-5) | field(i+6);
+                    FORMATIONS[i][1] = field(i-4) | field(i+5);
+                }
+            }
+        }
+        FORMATION_FIELDS = formationFields;
+        for(int i = 11; i <= 25; i++){
+            OUTPOST_SUPPORT[i] = field(i+9) | field(i+10) | field(i+11) | field(i+5) | field(((i-1)/5)%2 == 0 ? i+6 : i+4);
+        }
+        for(int i = 31; i <= 40; i++){
+            OUTPOST_SUPPORT[i] = field(i-9) | field(i-10) | field(i-11) | field(i-5) | field(((i-1)/5)%2 == 0 ? i-6 : i-4);
+        }
+        CENTER_SCORES[1] = -CENTER_WEIGHT;
+        CENTER_SCORES[2] = CENTER_WEIGHT;
+    }
     
     //The weights of the different evaluation functions
     int piecedifferenceWeight = 90;
@@ -46,11 +145,86 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
     //boolean to enable or diable aspiration search and it's window
     boolean asperationSearch = true;
     int aspirationWindow = 50;
+    
+    //The maximum number of captures the quiescence search plays after maxDepth, after that the state is evaluated even if a capture is possible
+    int quiescenceDepth = 16;
+    //The number of states visited by alphabeta and by the quiescence search during the last call to getMove
+    long nodeCount = 0;
+    long quiescenceNodeCount = 0;
+    
+    //boolean to enable or disable late move reductions: quiet moves that are ordered late are searched one ply less deep, unless they turn out to be better than alpha
+    //They are only reduced if at least lateMoveDepth plies are left and lateMoveNumber moves were searched before them
+    boolean lateMoveReductions = true;
+    int lateMoveDepth = 3;
+    int lateMoveNumber = 3;
+    //boolean to enable or disable futility pruning: one ply before maxDepth quiet moves are skipped if the evaluation plus the margin can not get above alpha
+    boolean futilityPruning = true;
+    int futilityMargin = 100;
+    //boolean to enable or disable ProbCut: if a search that is probCutReduction plies less deep is already probCutMargin above beta, we expect the full search to be above beta as well
+    //It is off by default, because on its own the extra searches cost more nodes than the cut offs saved
+    boolean probCut = false;
+    int probCutDepth = 6;
+    int probCutReduction = 4;
+    int probCutMargin = 50;
+    //How many times each of them was used during the last call to getMove, every reduction, skipped move and cut off saves the nodes of a subtree
+    long lateMoveReductionCount = 0;
+    long lateMoveResearchCount = 0;
+    long futilityPruneCount = 0;
+    long probCutCount = 0;
+    long probCutTryCount = 0;
+    
+    //boolean to enable or disable lazy evaluation: the expensive terms of the evaluation are skipped if they can not bring the score into the window
+    boolean lazyEvaluation = true;
+    //How many evaluations were cut short during the last call to getMove, a LongAdder because the young brothers wait tasks also evaluate
+    final LongAdder lazyEvaluationCount = new LongAdder();
+        
+    //The number of threads that search, with more than 1 thread lazy SMP is used: the other threads search the same state with a helper player
+    //of their own and only help by filling the transposition table that they share with this player
+    int threads = 1;
+    //The helper players and the threads they search in, they are created the first time they are needed
+    List<Group11DraughtsPlayer> helpers = new ArrayList<Group11DraughtsPlayer>();
+    ExecutorService helperThreads = null;
+    //boolean to use a young brothers wait search on a ForkJoinPool with the threads instead of lazy SMP
+    boolean youngBrothersWait = false;
+    YoungBrothersWaitSearch youngBrothers = null;
+    
+    //boolean to enable or disable pondering: searching on the time of the opponent, assuming it does the move we expect
+    boolean ponder = true;
+    //The state after our last move, in which the opponent is to move, and the move we expect the opponent to do in it
+    DraughtsState ponderState = null;
+    long expectedReply = PackedMove.NONE;
+    //The thread that ponders and the search it does, null if it is not pondering
+    ExecutorService ponderThread = null;
+    Future<Long> pondering = null;
+    //The hash key of the state that is pondered on, and if the opponent did the expected move
+    long ponderKey = 0;
+    volatile boolean ponderHit = false;
+    
+    //The limits of the current move as given to getMove: a deadline, a node budget and a maximum depth, and the clock of the game
+    //It is volatile because a pondering search gets the limits when the opponent did the expected move
+    volatile SearchLimits limits = SearchLimits.NONE;
+    //The time manager, if the deadline or the time left in the game is known the search stops itself just before the time is up instead of waiting until it is stopped
+    TimeManager timeManager = new TimeManager();
+    //The clock and the node budget are only checked every timeCheckNodes nodes, it has to be a power of 2
+    int timeCheckNodes = 1024;
+    //The number of nodes of the current search, of alphabeta and the quiescence search together
+    long searchNodeCount = 0;
+    //The number of moves this player did in the current game, used if the limits do not tell the move number
+    //A new game is noticed because it has more pieces than the last state
+    int movesPlayed = 0;
+    int lastPieceCount = 0;
         
     /**
      * boolean that indicates that the GUI asked the player to stop thinking.
+     * It is volatile because it is set by another thread while the search is reading it.
      */
-    private boolean stopped;
+    private volatile boolean stopped;
+
+    {
+        for(int i = 0; i < MAX_PLY; i++){
+            principalVariation[i] = new long[MAX_PLY - i];
+        }
+    }
 
     public Group11DraughtsPlayer() {
         super("robin.png");
@@ -73,89 +247,426 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
         this.outPostWeight = outpostWeight;
     }
 
+    /**
+     * Compute a move within the given limits, fixed depth or fixed node searches do not need to be stopped
+     * and give the same move every time if only one thread is used. Such a move is always searched from the
+     * start, also when we pondered on the right move, because the pondering search already went on without
+     * a depth or node limit
+     * @param s the state to compute a move for
+     * @param limits the budget for this move
+     * @return the move
+     */
+    @Override
+    public Move getMove(DraughtsState s, SearchLimits limits) {
+        this.limits = limits;
+        try {
+            return getMove(s);
+        } finally {
+            this.limits = SearchLimits.NONE;
+        }
+    }
+
     @Override
     public Move getMove(DraughtsState s) {
+        int pieceCount = s.getPieceCount(WHITEPIECE) + s.getPieceCount(WHITEKING) + s.getPieceCount(BLACKPIECE) + s.getPieceCount(BLACKKING);
+        if(pieceCount > lastPieceCount){
+            movesPlayed = 0;
+        }
+        lastPieceCount = pieceCount;
+        
+        long bestMove;
+        //The pondering search only knows when to stop by the clock, so a depth or node limit can not be applied to it
+        boolean timedOnly = limits.getDepth() == 0 && limits.getNodes() == 0;
+        if(pondering != null && ponderHit && s.getHashKey() == ponderKey && timedOnly){
+            //The opponent did the expected move, so the search that started on its time just goes on until we are stopped, or until the time manager stops it
+            startTimeManager();
+            bestMove = waitForPondering();
+        } else {
+            //The results of a pondering search that is stopped stay in the transposition table
+            stopPondering();
+            startTimeManager();
+            bestMove = search(s);
+        }
+        timeManager.stop();
+        movesPlayed++;
+        
+        //Remember the state after the move, in which we can ponder on the time of the opponent
+        //The expected move of the opponent is the second move of the principal variation, or the best move in the transposition table if the
+        //principal variation stopped at our own move
+        ponderState = null;
+        if(bestMove != PackedMove.NONE){
+            ponderState = s.clone();
+            ponderState.doMove(bestMove);
+            expectedReply = previousBestMovesLength > 1 && previousBestMoves[0] == bestMove
+                    ? previousBestMoves[1] : TransPositionTable.move(ponderState.getHashKey());
+        }
+
+        //Only the chosen move is converted back to a Move object
+        Move move = PackedMove.toMove(bestMove, s);
+        if (move == null) {
+            System.err.println("no valid move found!");
+            return getRandomValidMove(s);
+        } else {
+            return move;
+        }
+    }
+    
+    //Start the time manager with the limits of this move, the time of a pondering search also starts when getMove is called
+    void startTimeManager(){
+        SearchLimits l = limits;
+        //A deadline that already passed still has to count as a limit
+        long moveTime = l.hasDeadline() ? Math.max(1, l.timeToDeadline()) : 0;
+        int moveNumber = l.getMoveNumber() > 0 ? l.getMoveNumber() : 2 * movesPlayed;
+        timeManager.start(moveTime, l.getTimeLeft(), l.getIncrement(), moveNumber);
+    }
+    
+    /**
+     * Search the best move in the given state, with all threads, until the search is stopped
+     * @param state the state to search a move for, it is not changed
+     * @return the packed best move, or PackedMove.NONE
+     */
+    long search(DraughtsState state) {
+        //Entries of earlier moves are still usable, but are the first to be replaced
+        if(TransPositionTable == null){
+            TransPositionTable = new TranspositionTable(transpositionTableSize);
+        }
+        TransPositionTable.newSearch();
+        searchNodeCount = 0;
+        if(evaluationCacheSize > 0 && evaluationCache == null){
+            evaluationCache = new EvaluationCache(evaluationCacheSize);
+        }
+        if(evaluationCache != null && evaluationCacheWeights != weightsKey()){
+            evaluationCache.clear();
+            evaluationCacheWeights = weightsKey();
+        }
+        if(evaluationCache != null){
+            evaluationCache.setCounting(searchStatistics);
+            evaluationCache.resetCounts();
+        }
+        //The copy of the search and all its clones keep the sums of the features up to date, the state of the caller does not pay for that
+        DraughtsState s = state.clone();
+        s.setFeatureTable(FEATURES);
+        
+        //The young brothers wait search has its own pool with the threads, it is created again if the number of threads changed
+        if(parallelSearch() && (youngBrothers == null || youngBrothers.getThreads() != threads)){
+            if(youngBrothers != null){
+                youngBrothers.shutdown();
+            }
+            youngBrothers = new YoungBrothersWaitSearch(this, threads);
+        }
+        if(youngBrothers != null){
+            //A stop that came after the last search was already done is not meant for this search
+            youngBrothers.reset();
+        }
+        
+        //The helpers search until this player is done, only the best move of this player is used
+        List<Future<?>> helping = startHelpers(s);
+        try {
+            return iterativeDeepening(s, 1);
+        } finally {
+            stopHelpers(helping);
+        }
+    }
+    
+    /**
+     * The move we expect the opponent to do after our last move
+     * @return the expected move, or null if it is not known or pondering is disabled
+     */
+    @Override
+    public Move getExpectedMove() {
+        if(!ponder || ponderState == null || ponderState.isEndState()){
+            return null;
+        }
+        return PackedMove.toMove(expectedReply, ponderState);
+    }
+    
+    /**
+     * Start searching the state after the expected move of the opponent, in a thread of its own
+     * @param s the state in which the opponent is to move
+     * @param expectedMove the move the opponent is expected to do
+     */
+    @Override
+    public void ponderStart(DraughtsState s, Move expectedMove) {
+        stopPondering();
+        if(!ponder){
+            return;
+        }
+        if(ponderThread == null){
+            ponderThread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Group11 ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        DraughtsState state = s.clone();
+        state.doMove(expectedMove);
+        ponderKey = state.getHashKey();
+        ponderHit = false;
+        //The time of the opponent is not limited by us, the time manager starts when the opponent did the expected move
+        timeManager.stop();
+        pondering = ponderThread.submit(() -> search(state));
+    }
+    
+    //The opponent did the expected move, the pondering search goes on and is used by getMove
+    @Override
+    public void ponderHit() {
+        ponderHit = true;
+    }
+    
+    //The opponent did another move, the pondering search is stopped but its results stay in the transposition table
+    @Override
+    public void ponderMiss() {
+        stopPondering();
+    }
+    
+    /**
+     * Wait until the pondering search is stopped by the GUI and get its best move
+     * @return the packed best move, or PackedMove.NONE
+     */
+    long waitForPondering(){
+        try {
+            return pondering.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            System.err.println("pondering failed: " + ex);
+            return PackedMove.NONE;
+        } finally {
+            pondering = null;
+        }
+    }
+    
+    //Stop the pondering search if there is one, and wait until it is stopped
+    void stopPondering(){
+        if(pondering != null){
+            stop();
+            waitForPondering();
+            //If the search was already done before it was stopped, the stop is not meant for the next search
+            stopped = false;
+            if(youngBrothers != null){
+                youngBrothers.reset();
+            }
+        }
+    }
+    
+    /**
+     * Search deeper and deeper until the search is stopped or a winning move is found
+     * @param s the state to search a move for
+     * @param firstDepth the depth of the first itteration
+     * @return the packed best move of the deepest itteration that was finished, or PackedMove.NONE
+     */
+    long iterativeDeepening(DraughtsState s, int firstDepth) {
         //Reset bestmove, bestvalue and historyHeuristics
-        Move bestMove = null;
+        long bestMove = PackedMove.NONE;
+        //The time of the last itteration and how much longer each itteration takes than the one before, used to predict if the next one can be finished
+        long iterationStart = System.nanoTime();
+        long previousIteration = 0;
+        double branchingFactor = 4;
         bestValue = 0;
         HistoryHeuristic = new int[2][51][51];
-        PreviousTransPositionTable = new HashMap<Integer, returnObject>();
-        TransPositionTables = new ArrayList<HashMap<Integer, returnObject>>();
+        if(youngBrothers != null){
+            youngBrothers.clearHistory();
+        }
+        killerMoves = new long[MAX_PLY][2];
+        counterMoves = new long[2][51][51];
+        previousBestMovesLength = 0;
+        nodeCount = 0;
+        quiescenceNodeCount = 0;
+        lateMoveReductionCount = 0;
+        lateMoveResearchCount = 0;
+        futilityPruneCount = 0;
+        probCutCount = 0;
+        probCutTryCount = 0;
+        lazyEvaluationCount.reset();
         
         try {
             boolean searching = true;
-            int depth = 1;
+            int depth = firstDepth;
             
             //Set alpha beta to min anx max value
-            int alpha = MIN_VALUE;
-            int beta = MAX_VALUE;
+            int alpha = -INFINITY;
+            int beta = INFINITY;
                        
             //Limit search till 30 or until it found a solution which wins the game
-            while(searching && depth < 30){
+            //A search with a maximum depth stops after that depth
+            int lastDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), 29) : 29;
+            while(searching && depth <= lastDepth){
                 DraughtsNode node = new DraughtsNode(s.clone());
                 
-                //Initialize a transposition table to keep track of states it knows with it's score
-                TransPositionTable = new HashMap<Integer, returnObject>();
-                
-                //If the depth is 2 or higher get the transposition table of the previous itteration
-                if(depth > 1){
-                    PreviousTransPositionTable = TransPositionTables.get(depth - 2);                    
-                }
-                // compute bestMove and bestValue in a call to alphabeta
-                returnObject result = alphaBeta(node, alpha, beta, 0, depth);
+                // compute bestMove and bestValue in a call to alphabeta, the score is for the player that is to move
+                int result = searchRoot(node, alpha, beta, depth);
 
                 //If using asperation search we check if the result is lower than alpha or higher then beta
                 //If that is the case we have to redo this depth with the min max values for alpha and beta
                 //If this is not the case we know our limited windows was sufficient and thus optimized the search
                 if(asperationSearch){
-                    if(result.score <= alpha || result.score >= beta){
-                        result = alphaBeta(node, MIN_VALUE, MAX_VALUE, 0, depth);
+                    if(result <= alpha || result >= beta){
+                        result = searchRoot(node, -INFINITY, INFINITY, depth);
                     }
 
                     //Alpha and beta for the next depth are the current result + / - the asperation window
-                    alpha = result.score - aspirationWindow;
-                    beta = result.score + aspirationWindow;
+                    alpha = Math.max(-INFINITY, result - aspirationWindow);
+                    beta = Math.min(INFINITY, result + aspirationWindow);
                 }
 
                 // store the bestMove found uptill now
                 // NB this is not done in case of an AIStoppedException in alphaBeat()
-                Move resultmove = node.getBestMove();
-                
-                //Add the current aspiration table to the list of tables
-                TransPositionTables.add(TransPositionTable);
+                long resultmove = node.getBestPackedMove();
                                
-                //In some rare cases, which I was unable to find the cause of the result was null or the result would return a list of moves
-                //of which it for some reason thought it were a great set of moves but actually was quite bad. So the validate method
-                //checks if the done moves actually result in the given score if this is not the case we know something went wrong 
-                //and thus dont' use the result. This is really rare of happening but solved some obvious wrong moves
-                if(result != null && Validate(result, node.getState())){
+                //The principal variation can be shorter than the depth, because it stops at a state of which the score came from the transposition table
+                if(resultmove != PackedMove.NONE){
+                    timeManager.bestMoveChanged(bestMove != PackedMove.NONE && resultmove != bestMove);
                     bestMove = resultmove;
-                    bestValue = result.score;
-                    previousBestMoves = result.moves;
+                    //The value shown in the GUI is for white
+                    bestValue = s.isWhiteToMove() ? result : -result;
+                    previousBestMovesLength = principalVariationLength[0];
+                    System.arraycopy(principalVariation[0], 0, previousBestMoves, 0, previousBestMovesLength);
                 }
                 
                 //If you are going to win anyway (+-10000 score) there is no need to keep searching till depth 30 so just stop here
-                if((bestValue > 10000 && node.getState().isWhiteToMove()) || (bestValue < -10000 && !node.getState().isWhiteToMove())){
+                if(result > 10000){
+                    searching = false;
+                }
+                
+                //Do not start an itteration that will most likely not be finished in time, its result would be thrown away
+                long now = System.nanoTime();
+                long iteration = now - iterationStart;
+                iterationStart = now;
+                if(previousIteration > 0){
+                    double factor = Math.max(1.5, Math.min(8, (double) iteration / previousIteration));
+                    branchingFactor = (branchingFactor + factor) / 2;
+                }
+                previousIteration = iteration;
+                if(!timeManager.startNextIteration(iteration, branchingFactor)){
                     searching = false;
                 }
                 
 //                System.err.format(
-//                        "%s: depth= %2d, best move = %5s, value=%d\n",
-//                        this.getClass().getSimpleName(), depth, bestMove, result.score
+//                        "reductions=%d (%d searched again), futility pruned=%d, probcut=%d of %d\n",
+//                        lateMoveReductionCount, lateMoveResearchCount, futilityPruneCount, probCutCount, probCutTryCount
 //                );     
+                if(searchStatistics){
+                    System.err.format("%s: depth= %2d, best move = %5s, value=%d, nodes=%d, %s\n",
+                            this.getClass().getSimpleName(), depth, PackedMove.toString(bestMove), result, searchNodeCount,
+                            evaluationCache == null ? "no evaluation cache" : evaluationCache);
+                }
                 depth++;
         }
 
         } catch (AIStoppedException ex) {
             /* nothing to do */        }
-
-        if (bestMove == null) {
-            System.err.println("no valid move found!");
-            return getRandomValidMove(s);
-        } else {
-            return bestMove;
+        return bestMove;
+    }
+    
+    //If the young brothers wait search is used for the search
+    boolean parallelSearch(){
+        return youngBrothersWait && threads > 1;
+    }
+    
+    /**
+     * Search the root node with alphabeta, or with the young brothers wait search if it is used
+     * @param node the root node, its best move is set
+     * @param alpha
+     * @param beta
+     * @param maxDepth maximum recursion Depth
+     * @return the computed value of the root for the player that is to move
+     * @throws AIStoppedException thrown whenever the boolean stopped has been
+     * set to true.
+     */
+    int searchRoot(DraughtsNode node, int alpha, int beta, int maxDepth) throws AIStoppedException {
+        if(!parallelSearch()){
+            return alphaBeta(node, alpha, beta, 0, maxDepth);
+        }
+        try {
+            int result = youngBrothers.search(node, alpha, beta, maxDepth);
+            //The young brothers wait search keeps no principal variation, only the best move is known
+            principalVariation[0][0] = node.getBestPackedMove();
+            principalVariationLength[0] = 1;
+            return result;
+        } catch (AIStoppedException ex) {
+            stopped = false;
+            throw ex;
+        } finally {
+            //The nodes of the tasks count for the node budget of the next itterations
+            searchNodeCount += youngBrothers.nodeCount.sum();
+        }
+    }
+    
+    /**
+     * Let the helpers search the given state in their own thread, if more than 1 thread is used
+     * @param s the state this player searches
+     * @return the searches of the helpers, which have to be stopped with stopHelpers
+     */
+    List<Future<?>> startHelpers(DraughtsState s){
+        List<Future<?>> helping = new ArrayList<Future<?>>();
+        if(threads <= 1 || parallelSearch()){
+            return helping;
+        }
+        if(helpers.size() != threads - 1){
+            if(helperThreads != null){
+                helperThreads.shutdownNow();
+            }
+            helperThreads = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "Group11 helper");
+                //The helpers should never keep the program running
+                thread.setDaemon(true);
+                return thread;
+            });
+            helpers.clear();
+            for(int i = 0; i < threads - 1; i++){
+                helpers.add(createHelper());
+            }
+        }
+        for(int i = 0; i < helpers.size(); i++){
+            Group11DraughtsPlayer helper = helpers.get(i);
+            helper.TransPositionTable = TransPositionTable;
+            helper.evaluationCache = evaluationCache;
+            helper.stopped = false;
+            //Every helper gets its own copy of the state, and half of them start one depth deeper so that not all threads search the same depth at the same time
+            DraughtsState state = s.clone();
+            int firstDepth = 1 + (i + 1) % 2;
+            helping.add(helperThreads.submit(() -> helper.iterativeDeepening(state, firstDepth)));
+        }
+        return helping;
+    }
+    
+    /**
+     * Stop the helpers and wait until they are done, so they do not search anymore when the move is returned
+     * @param helping the searches of the helpers
+     */
+    void stopHelpers(List<Future<?>> helping){
+        for(Group11DraughtsPlayer helper : helpers){
+            helper.stop();
+        }
+        for(Future<?> search : helping){
+            try {
+                search.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                System.err.println("helper search failed: " + ex);
+            }
         }
     }
+    
+    /**
+     * Create a helper player with the same weights and search settings as this player
+     * @return the helper
+     */
+    Group11DraughtsPlayer createHelper(){
+        Group11DraughtsPlayer helper = new Group11DraughtsPlayer(piecedifferenceWeight, positionWeight, tempiWeight, piecesSpreadWeight, outPostWeight);
+        helper.asperationSearch = asperationSearch;
+        helper.aspirationWindow = aspirationWindow;
+        helper.quiescenceDepth = quiescenceDepth;
+        helper.lateMoveReductions = lateMoveReductions;
+        helper.lateMoveDepth = lateMoveDepth;
+        helper.lateMoveNumber = lateMoveNumber;
+        helper.futilityPruning = futilityPruning;
+        helper.futilityMargin = futilityMargin;
+        helper.probCut = probCut;
+        helper.probCutDepth = probCutDepth;
+        helper.probCutReduction = probCutReduction;
+        helper.probCutMargin = probCutMargin;
+        helper.verifyEvaluation = verifyEvaluation;
+        helper.lazyEvaluation = lazyEvaluation;
+        return helper;
+    }
 
     /**
      * This method's return value is displayed in the AICompetition GUI.
@@ -176,6 +687,26 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
     @Override
     public void stop() {
         stopped = true;
+        if(youngBrothers != null){
+            youngBrothers.stop();
+        }
+    }
+
+    //Check the limits every timeCheckNodes nodes, if the hard limit of the time manager is reached or the node budget is spent the search stops as if it was told to
+    void checkLimits(){
+        if((++searchNodeCount & (timeCheckNodes - 1)) == 0 && budgetSpent(searchNodeCount)){
+            stopped = true;
+        }
+    }
+    
+    /**
+     * Check if the search has to stop because of its limits
+     * @param nodes the number of nodes searched for this move so far
+     * @return true if the hard limit of the time manager is reached, or if the node budget is spent
+     */
+    boolean budgetSpent(long nodes){
+        long budget = limits.getNodes();
+        return timeManager.hardLimitReached() || (budget > 0 && nodes >= budget);
     }
 
     /**
@@ -188,177 +719,362 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
     }
  
     /**
-     * Implementation of alphabeta that automatically chooses the white player
-     * as maximizing player and the black player as minimizing player.
-     *
-     * @param node contains DraughtsState and has field to which the best move
-     * can be assigned.
-     * @param alpha
-     * @param beta
-     * @param depth maximum recursion Depth
-     * @return the computed value of this node
-     * @throws AIStoppedException
-     *
-     */
-    returnObject alphaBeta(DraughtsNode node, int alpha, int beta, int depth, int maxDepth)
-            throws AIStoppedException {
-        //Get the hashcode of the current state to look and put the result in the transpositiontable
-        int hashcode = HashCode(node.getState());
-        //Check if the transposition already knows the result for our current state, if so just return it instead of continueing alpha beta for the current state
-        if(TransPositionTable.containsKey(hashcode)){
-            return TransPositionTable.get(hashcode);
-        }  
-
-        DraughtsState state = node.getState();
-        returnObject score = new returnObject(0, new ArrayList<Move>());
-        
-        //If the current state => the maxdepth it may go and is quiet (meaning the next player can not capture a piece) we evaluate the current state and return it
-        if((depth >= maxDepth && IsQuiet(state))){
-            score.score = evaluate(state);
-        } else if(state.isWhiteToMove()){
-            score = alphaBetaMax(node, alpha, beta, depth, maxDepth);
-        } else {
-            score = alphaBetaMin(node, alpha, beta, depth, maxDepth);
-        }
-        //Put the score of the current state in the transpostion table so if we ever run into it again we dont' have to do alpha beta again for it
-        TransPositionTable.put(hashcode, score);
-        return score;
-    }
-
-    /**
-     * Does an alphabeta computation with the given alpha and beta where the
-     * player that is to move in node is the minimizing player.
-     *
-     * <p>
-     * Typical pieces of code used in this method are:
-     * <ul> <li><code>DraughtsState state = node.getState()</code>.</li>
-     * <li><code> state.doMove(move); .... ; state.undoMove(move);</code></li>
-     * <li><code>node.setBestMove(bestMove);</code></li>
-     * <li><code>if(stopped) { stopped=false; throw new AIStoppedException(); }</code></li>
-     * </ul>
-     * </p>
+     * Implementation of alphabeta in negamax form: the score is always for the player that is to move, so
+     * the score of a child is the negated score for the opponent. Only the first move is searched with the
+     * full window (principal variation search), the other moves are searched with a zero window which only
+     * proves that they are not better. If one of them is better after all it is searched again with the full window.
      *
      * @param node contains DraughtsState and has field to which the best move
      * can be assigned.
      * @param alpha
      * @param beta
-     * @param depth maximum recursion Depth
-     * @return the compute value of this node
+     * @param depth the current depth, the number of moves done since the root
+     * @param maxDepth maximum recursion Depth
+     * @return the computed value of this node for the player that is to move
      * @throws AIStoppedException thrown whenever the boolean stopped has been
      * set to true.
+     *
      */
-    returnObject alphaBetaMin(DraughtsNode node, int alpha, int beta, int depth, int maxDepth)
+    int alphaBeta(DraughtsNode node, int alpha, int beta, int depth, int maxDepth)
             throws AIStoppedException {
+        checkLimits();
         if (stopped) {
             stopped = false;
             throw new AIStoppedException();
         }
+        nodeCount++;
+        //The principal variation from this depth on is empty until a move is found that is within the window
+        principalVariationLength[depth] = 0;
         
         DraughtsState state = node.getState();
+        //Get the hash key of the current state to look and put the result in the transpositiontable
+        //The state keeps this key up to date itself, so this is just a field lookup
+        long hashcode = state.getHashKey();
+        //The depth that is still left to search from this state
+        int remaining = Math.max(0, maxDepth - depth);
+        //Check if the transposition table already knows the result for our current state, if so just return it instead of continueing alpha beta for the current state
+        //The result can only be used if it was searched at least as deep, and if its score is exact or a bound that is outside the window anyway
+        //At the root we always search, because the best move has to be set in the node
+        long info = TransPositionTable.probe(hashcode);
+        if(depth > 0 && info != TranspositionTable.NONE && TranspositionTable.depth(info) >= remaining){
+            int ttScore = TranspositionTable.score(info);
+            int bound = TranspositionTable.bound(info);
+            if(bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && ttScore >= beta)
+                    || (bound == TranspositionTable.UPPER && ttScore <= alpha)){
+                return ttScore;
+            }
+        }
+        
+        //If the current state => the maxdepth it may go we only look at the captures, until the state is quiet (meaning the next player can not capture a piece)
+        if(depth >= maxDepth){
+            int score = quiescence(state, alpha, beta, depth, 0);
+            int bound = TranspositionTable.EXACT;
+            if(score <= alpha){
+                bound = TranspositionTable.UPPER;
+            } else if(score >= beta){
+                bound = TranspositionTable.LOWER;
+            }
+            TransPositionTable.store(hashcode, 0, bound, score, PackedMove.NONE);
+            return score;
+        }
+        
+        //A zero window means that this state is not on the principal variation, only there the search is made selective
+        boolean zeroWindow = beta - alpha == 1;
+        
+        //ProbCut: a less deep search with a window above beta, if it fails high the full search would most likely fail high as well
+        if(probCut && zeroWindow && depth > 0 && remaining >= probCutDepth && beta + probCutMargin < INFINITY){
+            probCutTryCount++;
+            int probCutBeta = beta + probCutMargin;
+            int score = alphaBeta(node, probCutBeta - 1, probCutBeta, depth, maxDepth - probCutReduction);
+            if(score >= probCutBeta){
+                probCutCount++;
+                return score;
+            }
+        }
+        
+        //Futility pruning: one ply before maxDepth a quiet move can only save the state if the evaluation plus the margin gets above alpha
+        int futilityScore = -INFINITY;
+        if(futilityPruning && zeroWindow && depth > 0 && remaining == 1){
+            //Only an evaluation that is not above alpha - futilityMargin is needed exactly
+            int evaluation = lazyEvaluate(state, alpha - futilityMargin, alpha - futilityMargin + 1);
+            if(evaluation + futilityMargin <= alpha){
+                futilityScore = evaluation + futilityMargin;
+            }
+        }
         
         //Try to get the previous best move of the last itteration for the current depth, this move has a decent chance of still beeing the best move this itteration
         //Meaning we can use it to order the moves better and thus optimize alpha beta
-        Move prev = null;
-        if(previousBestMoves != null && previousBestMoves.size() >= depth){
-            prev = previousBestMoves.get(Math.max(depth - 1, 0));
-        }
-        List<Move> moves = orderMoves(state, prev);
+        long prev = depth < previousBestMovesLength ? previousBestMoves[depth] : PackedMove.NONE;
+        long[] moves = moveBuffer(depth);
+        int moveCount = scoreMoves(state, TransPositionTable.move(hashcode), prev, moves, depth);
         
-        returnObject bestScore = new returnObject(MAX_VALUE, new ArrayList<Move>());
-        Move bestMove = null;
+        //If the player can not move it has lost
+        int bestScore = -INFINITY;
+        long bestMove = PackedMove.NONE;
+        int originalAlpha = alpha;
         
-        for(Move move : moves){
+        for(int i = 0; i < moveCount; i++){
+            //Only the moves that are actually searched are put in order, in a cut node this is often just the first one
+            long move = selectMove(moves, orderKeys[depth], i, moveCount);
+            //A quiet move that is not a hash, killer or counter move, captures and promotions are never pruned or reduced
+            boolean lateMove = i > 0 && (orderKeys[depth][i] >>> 32) == 0 && !PackedMove.isCapture(move) && !PackedMove.isPromotion(move);
+            if(lateMove && futilityScore != -INFINITY){
+                futilityPruneCount++;
+                //The skipped move could have reached the futility score, so the score of this state is at most that
+                bestScore = Math.max(bestScore, futilityScore);
+                continue;
+            }
+            playedMoves[depth] = move;
             state.doMove(move);
+            int score;
+            if(i == 0){
+                score = -alphaBeta(node, -beta, -alpha, depth + 1, maxDepth);
+            } else {
+                //Reduce late moves, but not if the opponent has to capture after it because then the move was not quiet after all
+                int reduction = 0;
+                if(lateMoveReductions && lateMove && i >= lateMoveNumber && remaining >= lateMoveDepth && !state.hasCapture()){
+                    reduction = 1;
+                    lateMoveReductionCount++;
+                }
+                //Only check if this move is better than alpha, if it is we need its exact score and search it again
+                score = -alphaBeta(node, -alpha - 1, -alpha, depth + 1, maxDepth - reduction);
+                if(reduction > 0 && score > alpha){
+                    lateMoveResearchCount++;
+                    score = -alphaBeta(node, -alpha - 1, -alpha, depth + 1, maxDepth);
+                }
+                if(score > alpha && score < beta){
+                    score = -alphaBeta(node, -beta, -alpha, depth + 1, maxDepth);
+                }
+            }
+            state.undoMove();
             
-            returnObject result = alphaBeta(node, alpha, beta, depth + 1, maxDepth);
-        
-            //This is alphabeta min, so if the move returns a lower score than the current loweest we prefer that one
-            if(result.score < bestScore.score){
-                bestScore = result;
+            //The first move is always kept, so a lost state still has a best move
+            if(score > bestScore || bestMove == PackedMove.NONE){
+                bestScore = Math.max(bestScore, score);
                 bestMove = move;
                 if(depth == 0){
-                    node.setBestMove(move);                    
+                    node.setBestMove(move);
                 }
             }
-            state.undoMove(move);
-            
-            //Set beta to be the current lowest score
-            beta = Math.min(beta, result.score);
-            
-            //If alpha >= beta we know we don't have to search any further and just stop the loop to save time
+            if(score > alpha){
+                alpha = score;
+                //The principal variation of this depth is this move followed by the principal variation of the next depth
+                long[] pv = principalVariation[depth];
+                pv[0] = move;
+                int length = principalVariationLength[depth + 1];
+                System.arraycopy(principalVariation[depth + 1], 0, pv, 1, length);
+                principalVariationLength[depth] = length + 1;
+            }
+            //If alpha >= beta we don't have to search the other options because we know they won't be the best move anyway
             if(alpha >= beta){
+                SetCutOffMove(move, state.isWhiteToMove(), depth);
                 break;
             }
         }
-        //Add the current best move to the return object
-        bestScore.moves.add(0, bestMove);
         //Add teh best move the history heuristic so in the future we can use this information because it is likely it is a good move for another state aswell
-        SetHistoryHeuristic(bestMove, depth);
+        SetHistoryHeuristic(bestMove, state.isWhiteToMove(), depth);
+        
+        //Put the score of the current state in the transpostion table so if we ever run into it again we dont' have to do alpha beta again for it
+        //If the score is outside the window it is only a bound, because the search stopped at the first move that was good enough
+        int bound = TranspositionTable.EXACT;
+        if(bestScore <= originalAlpha){
+            bound = TranspositionTable.UPPER;
+        } else if(bestScore >= beta){
+            bound = TranspositionTable.LOWER;
+        }
+        TransPositionTable.store(hashcode, remaining, bound, bestScore, bestMove);
         return bestScore;
     }
 
     /**
-     * Alpha beta max
-     * @param node the draughtsNode
-     * @param alpha The current alpha for cutt ofs
-     * @param beta The current beta for cut offs
-     * @param depth The current depth
-     * @param maxDepth The max depth
-     * @return return a returnobject with the moves and best score
-     * @throws AIStoppedException 
+     * The quiescence search after maxDepth. Because capturing is compulsory, a state in which the player
+     * to move can capture is not stable, so the captures are played until a quiet state is reached.
+     * In a quiet state the player stands pat: the evaluation is its score and no other moves are searched.
+     * After quiescenceDepth captures the state is evaluated anyway, so a long series of captures can not
+     * make an itteration take much longer than expected.
+     * @param state the draughtsState
+     * @param alpha
+     * @param beta
+     * @param depth the current depth, which owns the move buffer
+     * @param quiescencePly the number of captures played in the quiescence search
+     * @return the computed value of this state for the player that is to move
+     * @throws AIStoppedException thrown whenever the boolean stopped has been
+     * set to true.
      */
-    returnObject alphaBetaMax(DraughtsNode node, int alpha, int beta, int depth, int maxDepth)
+    int quiescence(DraughtsState state, int alpha, int beta, int depth, int quiescencePly)
             throws AIStoppedException {
+        checkLimits();
         if (stopped) {
             stopped = false;
             throw new AIStoppedException();
         }
-
-        DraughtsState state = node.getState();
+        quiescenceNodeCount++;
         
-        //Try to get the previous best move of the last itteration for the current depth, this move has a decent chance of still beeing the best move this itteration
-        //Meaning we can use it to order the moves better and thus optimize alpha beta
-        Move prev = null;
-        if(previousBestMoves != null && previousBestMoves.size() >= depth){
-            prev = previousBestMoves.get(Math.max(depth - 1, 0));
-        }
-        List<Move> moves = orderMoves(state, prev);
-              
-        returnObject bestScore = new returnObject(MIN_VALUE, new ArrayList<Move>());
-        Move bestMove = null;
+        //Stand pat if the state is quiet, or if the quiescence search went deep enough
+        if(IsQuiet(state) || quiescencePly >= quiescenceDepth || depth >= MAX_PLY - 1){
+            return lazyEvaluate(state, alpha, beta);
+        }
         
-        for(Move move : moves){
-            state.doMove(move);
-            returnObject result = alphaBeta(node, alpha, beta, depth + 1, maxDepth);
-            state.undoMove(move);
-
-            //This is alphabeta min, so if the move returns a lower score than the current loweest we prefer that one
-            if(result.score > bestScore.score){
-                bestScore = result;
-                bestMove = move;
-                if(depth == 0){
-                    node.setBestMove(move);                    
-                }
-            }
+        //All captures have the same number of pieces captured, so there is no need to order them
+        long[] moves = moveBuffer(depth);
+        int moveCount = state.generateCaptures(moves);
+        int bestScore = -INFINITY;
+        for(int i = 0; i < moveCount; i++){
+            state.doMove(moves[i]);
+            int score = -quiescence(state, -beta, -alpha, depth + 1, quiescencePly + 1);
+            state.undoMove();
             
-            //This is alphabeta max, so if the move returns a higher score than the current best we prefer that one
-            alpha = Math.max(alpha, result.score);
+            if(score > bestScore){
+                bestScore = score;
+            }
+            alpha = Math.max(alpha, score);
             if(alpha >= beta){
-                //If alpha >= beta we don't have to search the other options because we know they won't be the best move anyway
                 break;
             }
         }
-        //Add the current best move to the return object
-        bestScore.moves.add(0, bestMove);
-        //Add teh best move the history heuristic so in the future we can use this information because it is likely it is a good move for another state aswell
-        SetHistoryHeuristic(bestMove, depth);
         return bestScore;
     }
 
     /**
      * A method that evaluates the given state.
      */
-    int evaluate(DraughtsState state) {        
+    int evaluate(DraughtsState state) {
+        //If the state was evaluated before its score is in the evaluation cache, when verifying every state is evaluated again
+        EvaluationCache cache = evaluationCache;
+        if(cache != null && !verifyEvaluation){
+            long hashcode = state.getHashKey();
+            long cached = cache.probe(hashcode);
+            if(cached != EvaluationCache.NONE){
+                return EvaluationCache.score(cached);
+            }
+            int score = state.getFeatureTable() == FEATURES ? evaluate(state, state.getFeatures()) : evaluateFromScratch(state);
+            cache.store(hashcode, score);
+            return score;
+        }
+        //If the state does not keep the sums of the features, it is evaluated from scratch
+        if(state.getFeatureTable() != FEATURES){
+            return evaluateFromScratch(state);
+        }
+        int score = evaluate(state, state.getFeatures());
+        if(verifyEvaluation){
+            int expected = evaluateFromScratch(state);
+            if(score != expected){
+                throw new IllegalStateException("incremental evaluation " + score + " differs from evaluation from scratch " + expected + " in " + state.toFEN());
+            }
+        }
+        return score;
+    }
+    
+    //The evaluation from the feature sums of the state and the pattern tables, it gives the same score as evaluateFromScratch
+    int evaluate(DraughtsState state, long features) {
+        long whiteMen = state.getPieceMask(WHITEPIECE);
+        long blackMen = state.getPieceMask(BLACKPIECE);
+        return CheapTerms(state, features, whiteMen, blackMen) + StructuralTerms(state, whiteMen, blackMen);
+    }
+    
+    //The terms that only need the piece counts, the feature sums and a table read: the piece difference, the tempi, the spread and the center pieces
+    int CheapTerms(DraughtsState state, long features, long whiteMen, long blackMen){
+        int pieceDiffscore = (int)(PieceDifference(state) * piecedifferenceWeight);
+        int tempiscore = TempiFromFeatures(features) * tempiWeight;
+        int centerPieceScore = CENTER_SCORES[(int) (blackMen >>> 2) & 1 | ((int) (whiteMen >>> 47) & 1) << 1];
+        int piceSpradScore = PieceSpreadFromFeatures(features) * piecesSpreadWeight;
+        return pieceDiffscore + tempiscore + centerPieceScore + piceSpradScore;
+    }
+    
+    //The terms that loop over the men: the formations and the outposts
+    int StructuralTerms(DraughtsState state, long whiteMen, long blackMen){
+        long white = whiteMen | state.getPieceMask(WHITEKING);
+        long blackKings = state.getPieceMask(BLACKKING);
+        long black = blackMen | blackKings;
+        //isPiece looks for the value 0 when it checks black, which is an empty field, so a black outpost is backed up by an empty field or a black king
+        long blackSupport = (~(white | black) & BOARD_FIELDS) | blackKings;
+        
+        int positionscore = (FormationCount(whiteMen) - FormationCount(blackMen)) * positionWeight;
+        int outPostScore = outPostWeight * (OutPostCount(blackMen & BLACK_OUTPOST_FIELDS, blackSupport) - OutPostCount(whiteMen & WHITE_OUTPOST_FIELDS, white));
+        return positionscore + outPostScore;
+    }
+    
+    /**
+     * Evaluate the state for the player that is to move, but stop after the cheap terms if the structural terms can not bring
+     * the score back into the window. How far the structural terms can move the score follows from their weights and the number
+     * of men that can be part of a formation or an outpost.
+     * @param state the draughtsState
+     * @param alpha
+     * @param beta
+     * @return the evaluation for the player that is to move if it is inside the window, otherwise a bound that is at most alpha or at least beta
+     */
+    int lazyEvaluate(DraughtsState state, int alpha, int beta){
+        boolean white = state.isWhiteToMove();
+        if(!lazyEvaluation || state.getFeatureTable() != FEATURES){
+            return white ? evaluate(state) : -evaluate(state);
+        }
+        EvaluationCache cache = evaluationCache;
+        long hashcode = state.getHashKey();
+        if(cache != null && !verifyEvaluation){
+            long cached = cache.probe(hashcode);
+            if(cached != EvaluationCache.NONE){
+                return white ? EvaluationCache.score(cached) : -EvaluationCache.score(cached);
+            }
+        }
+        long whiteMen = state.getPieceMask(WHITEPIECE);
+        long blackMen = state.getPieceMask(BLACKPIECE);
+        int score = CheapTerms(state, state.getFeatures(), whiteMen, blackMen);
+        
+        //The most the structural terms can add for white and for black
+        int whiteFormations = Long.bitCount(whiteMen & FORMATION_FIELDS);
+        int blackFormations = Long.bitCount(blackMen & FORMATION_FIELDS);
+        int whiteOutposts = Long.bitCount(whiteMen & WHITE_OUTPOST_FIELDS);
+        int blackOutposts = Long.bitCount(blackMen & BLACK_OUTPOST_FIELDS);
+        int up = MaxTerm(positionWeight, whiteFormations, blackFormations) + MaxTerm(outPostWeight, blackOutposts, whiteOutposts);
+        int down = MaxTerm(positionWeight, blackFormations, whiteFormations) + MaxTerm(outPostWeight, whiteOutposts, blackOutposts);
+        
+        int bound = Integer.MIN_VALUE;
+        if(white ? score + up <= alpha : -score + down <= alpha){
+            bound = white ? score + up : -score + down;
+        } else if(white ? score - down >= beta : -score - up >= beta){
+            bound = white ? score - down : -score - up;
+        }
+        if(bound != Integer.MIN_VALUE){
+            lazyEvaluationCount.increment();
+            if(verifyEvaluation){
+                int exact = white ? evaluateFromScratch(state) : -evaluateFromScratch(state);
+                if(bound <= alpha ? exact > bound : exact < bound){
+                    throw new IllegalStateException("lazy evaluation bound " + bound + " does not hold for " + exact + " in " + state.toFEN());
+                }
+            }
+            return bound;
+        }
+        
+        score += StructuralTerms(state, whiteMen, blackMen);
+        if(verifyEvaluation){
+            int expected = evaluateFromScratch(state);
+            if(score != expected){
+                throw new IllegalStateException("lazy evaluation " + score + " differs from evaluation from scratch " + expected + " in " + state.toFEN());
+            }
+        }
+        if(cache != null){
+            cache.store(hashcode, score);
+        }
+        return white ? score : -score;
+    }
+    
+    //The most a term weight * (plus - minus) can be, if plus can be at most maxPlus and minus at most maxMinus
+    static int MaxTerm(int weight, int maxPlus, int maxMinus){
+        return weight >= 0 ? weight * maxPlus : -weight * maxMinus;
+    }
+    
+    //A key of the weights, the evaluation cache is only valid for the weights it was filled with
+    long weightsKey(){
+        long key = 17;
+        for(int weight : new int[]{piecedifferenceWeight, positionWeight, tempiWeight, piecesSpreadWeight, outPostWeight}){
+            key = 31 * key + weight;
+        }
+        return key;
+    }
+    
+    //The evaluation from scratch, every term loops over the pieces of the state
+    int evaluateFromScratch(DraughtsState state) {        
         //Calculate the score for each sub evaluation and multiply them by their weights
         //pieceDifference is by far the most important one since losing a piece early on basically means you lost the game
         //So it always tries to keep the peiceScore as high as possible, and when they are equel it will try to get the best
@@ -372,32 +1088,61 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
                 
         return pieceDiffscore + positionscore + tempiscore + centerPieceScore + piceSpradScore + outPostScore;
     }
+    
+    //The mask of a field
+    static long field(int field){
+        return 1L << (field - 1);
+    }
+    
+    //The mask of the fields from first up to and including last
+    static long fields(int first, int last){
+        long mask = 0;
+        for(int f = first; f <= last; f++){
+            mask |= field(f);
+        }
+        return mask;
+    }
+    
+    //Count the men of a side that are the middle of a formation of 3, from the pattern tables
+    static int FormationCount(long men){
+        int count = 0;
+        for(long m = men & FORMATION_FIELDS; m != 0; m &= m - 1){
+            long[] formations = FORMATIONS[Long.numberOfTrailingZeros(m) + 1];
+            if((men & formations[0]) == formations[0] || (men & formations[1]) == formations[1]){
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    //Count the given men that are not backed up by a piece of their own side, from the pattern tables
+    static int OutPostCount(long men, long side){
+        int count = 0;
+        for(long m = men; m != 0; m &= m - 1){
+            if((side & OUTPOST_SUPPORT[Long.numberOfTrailingZeros(m) + 1]) == 0){
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    //Put a value in the 8 bits of the given feature
+    static long feature(int feature, int value){
+        return (long) value << (8 * feature);
+    }
+    
+    //Get the value of the given feature from the packed sums
+    static int feature(long features, int feature){
+        return (int) (features >>> (8 * feature)) & 0xFF;
+    }
 
     //Get the difference in piecies between black and white
     double PieceDifference(DraughtsState state){
-        int[] pieces = state.getPieces();
-        int blackpieces = 0;
-        int whitepieces = 0;
         //Give 1 point per piece, and 3 for kings
         //Compare the result of white - black pieces or the opposide 
-        for (int i = 0; i < pieces.length; i++) {
-            switch (pieces[i]) {
-                case 1:
-                    whitepieces++;
-                    break;
-                case 3:
-                    whitepieces += 3;
-                    break;
-                case 2:
-                    blackpieces++;
-                    break;
-                case 4:
-                    blackpieces += 3;
-                    break;
-                default:
-                    break;
-            }
-        }
+        //The state keeps count of its pieces, so there is no need to loop over the board
+        int whitepieces = state.getPieceCount(WHITEPIECE) + 3 * state.getPieceCount(WHITEKING);
+        int blackpieces = state.getPieceCount(BLACKPIECE) + 3 * state.getPieceCount(BLACKKING);
         double multiplier = 10;
         //Check if both players still ahve atleast 1 piece otherwise we get divide by 0 stuff
         if(Math.min(whitepieces, blackpieces) >= 1){
@@ -414,56 +1159,43 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
     int KeepCenterPieces(DraughtsState state){
         int score = 0;
         if(state.getPiece(3) == 2){
-            score -= 10;
+            score -= CENTER_WEIGHT;
         }
         if(state.getPiece(48) == 1){
-            score += 10;
+            score += CENTER_WEIGHT;
         }
         return score;
     }
 
     //Get a score of the curren positioning
     int PositionScore(DraughtsState state){
-        int[] pieces = state.getPieces();
-        int whitepieceScore = 0;
-        for(int i=0; i<pieces.length; i++){
+        return FormationCount(state, WHITEPIECE) - FormationCount(state, BLACKPIECE);
+    }
+    
+    //Count the pieces of the given type that are the middle of a formation of 3, only the fields with such a piece are visited
+    int FormationCount(DraughtsState state, int piece){
+        int[] fields = state.getPieceFields(piece);
+        int count = 0;
+        for(int n = 0; n < state.getPieceCount(piece); n++){
+            int i = fields[n];
             //The first and last row can never be the middle of a formation of 3
-            if(i > 5 && i < 46)
-            {
-                //The sides of the board can never be part of a formation
-                if(i%10 != 6 && i%10 != 5){
-                    if(pieces[i] == 1){
-                        //Check if i is an odd or even row
-                        if(((i-1)/5)%2 == 0){
-                            //Check if it is the middle of a formation of 3
-                            if((pieces[i-6] == 1 && pieces[i+5] == 1) || (pieces[i-5] == 1 && pieces[i+4] == 1)){
-                                whitepieceScore++;
-                            }
-                        } else{
-                            //Check if it is the middle of a formation of 3
-                            if((pieces[i-5] == 1 && pieces[i+6] == 1) || (pieces[i-4] == 1 && pieces[i+5] == 1)){
-                                whitepieceScore++;
-                            }
-                        }
+            //The sides of the board can never be part of a formation
+            if(i > 5 && i < 46 && i%10 != 6 && i%10 != 5){
+                //Check if i is an odd or even row
+                if(((i-1)/5)%2 == 0){
+                    //Check if it is the middle of a formation of 3
+                    if((state.getPiece(i-6) == piece && state.getPiece(i+5) == piece) || (state.getPiece(i-5) == piece && state.getPiece(i+4) == piece)){
+                        count++;
                     }
-            
-                    if(pieces[i] == 2){
-                        //Check if i is an odd or even row
-                        if(((i-1)/5)%2 == 0){
-                            //Check if it is the middle of a formation of 3
-                            if((pieces[i-6] == 2 && pieces[i+5] == 2) || (pieces[i-5] == 2 && pieces[i+4] == 2)){
-                                whitepieceScore--;
-                            }
-                        } else{
-                            if((pieces[i-5] == 2 && pieces[i+6] == 2) || (pieces[i-4] == 2 && pieces[i+5] == 2)){
-                                whitepieceScore--;
-                            }
-                        }
+                } else{
+                    //Check if it is the middle of a formation of 3
+                    if((state.getPiece(i-5) == piece && state.getPiece(i+6) == piece) || (state.getPiece(i-4) == piece && state.getPiece(i+5) == piece)){
+                        count++;
                     }
                 }
             }
         }
-        return whitepieceScore;
+        return count;
     }
     
     /**
@@ -472,49 +1204,33 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
      * @return An integer of the tempi score
      */
     int Tempi(DraughtsState state){
-        int[] pieces = state.getPieces();
         int whiteTempi = 0;
         int blackTempi = 0;
         //Count the steps white made forward and subtract the steps black made forward
-        for(int i=0; i < pieces.length; i++){
-            if(pieces[i] == 1){
-                whiteTempi += (51-i)/5;
-            }
-            if(pieces[i] == 2)
-            {
-                blackTempi += i/5;
-            }
+        int[] white = state.getPieceFields(WHITEPIECE);
+        for(int n = 0; n < state.getPieceCount(WHITEPIECE); n++){
+            whiteTempi += (51-white[n])/5;
+        }
+        int[] black = state.getPieceFields(BLACKPIECE);
+        for(int n = 0; n < state.getPieceCount(BLACKPIECE); n++){
+            blackTempi += black[n]/5;
         }
         return whiteTempi - blackTempi;
     }
     
-    /**
-     * Return a hashcode for the current state
-     * @param state the drauhgtsState
-     * @return an (hopefully) unique code to store the state and score in the transpositionTable
-     */
-    int HashCode(DraughtsState state){
-        int res = Arrays.hashCode(state.getPieces());
-        
-        //Add 1 to the hashcode if white is to move this differentiates the black and white state if they somehow get in the same position
-        if(state.isWhiteToMove()){
-            res += 1;
-        }
-        return res;
+    //The tempi score from the sums the state keeps
+    int TempiFromFeatures(long features){
+        return feature(features, WHITE_TEMPI) - feature(features, BLACK_TEMPI);
     }
-  
+    
     /**
      * Return if the current state is quiet, meaning there is no possibility to capture
      * @param state the draughtsState
      * @return true or false if there is a capture possible
      */
     boolean IsQuiet(DraughtsState state){
-        if(!state.isEndState()){
-            return !state.getMoves().get(0).isCapture();    
-        }
-        else{
-            return true;
-        }
+        //The state can tell this without generating any moves
+        return !state.hasCapture();
     }
     
     /**
@@ -524,38 +1240,50 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
      * @return A score for the given side
      */
     int PieceSpreadPerSide(DraughtsState state, boolean white){
-        int[] pieces = state.getPieces();
-        
         //If we need to check for white or black pieces
-        int comparer = white ? 1 : 2;
+        int comparer = white ? WHITEPIECE : BLACKPIECE;
+        int[] fields = state.getPieceFields(comparer);
         
         int left = 0;
         int middle = 0;
         int right = 0;
         
         //Keep a count of the pieces on the left 3, middle 4, and right 3 columns.
-        for(int i=1; i<pieces.length; i++){
-            if(pieces[i] == comparer){              
-                switch (i%10){
-                    case 1:
-                    case 6:
-                    case 7:
-                        left++;
-                        break;
-                    case 2:
-                    case 3:
-                    case 8:
-                    case 9:
-                        middle++;
-                        break;
-                    case 4:
-                    case 5:
-                    case 0:
-                        right++;
-                        break;
-                }                
+        for(int n = 0; n < state.getPieceCount(comparer); n++){
+            switch (SpreadColumn(fields[n])){
+                case 0:
+                    left++;
+                    break;
+                case 1:
+                    middle++;
+                    break;
+                case 2:
+                    right++;
+                    break;
             }
         }
+        return PieceSpreadScore(left, middle, right);
+    }
+    
+    //Get if a field is in the left 3 (0), middle 4 (1) or right 3 (2) columns
+    static int SpreadColumn(int field){
+        switch (field%10){
+            case 1:
+            case 6:
+            case 7:
+                return 0;
+            case 2:
+            case 3:
+            case 8:
+            case 9:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+    
+    //Get the piece spread score of one side from the number of its pieces on the left, middle and right columns
+    static int PieceSpreadScore(int left, int middle, int right){
         int total = left + middle + right;
         
         //We want a somewhat evenly devided board. We prefer the middle pieces however, so we want 50% of the pieces on the middle 4 rows and 25% on both sides.
@@ -575,22 +1303,28 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
         return PieceSpreadPerSide(state, true) - PieceSpreadPerSide(state, false);
     }
     
+    //The piece spread score from the sums the state keeps
+    int PieceSpreadFromFeatures(long features){
+        int white = SPREAD_SCORES[(feature(features, WHITE_LEFT) * 21 + feature(features, WHITE_LEFT + 1)) * 21 + feature(features, WHITE_LEFT + 2)];
+        int black = SPREAD_SCORES[(feature(features, BLACK_LEFT) * 21 + feature(features, BLACK_LEFT + 1)) * 21 + feature(features, BLACK_LEFT + 2)];
+        return white - black;
+    }
+    
     /**
      * Get an outpost score
      * @param state The current draughtsState
      * @return an outpost score
      */
     int OutPostScore(DraughtsState state){
-        int[] pieces = state.getPieces();
         int whiteScore = 0;
         int blackScore = 0;
         
         //We define an outpost that is not backed up by another piece within 2 moves away
-        for(int i = 0; i< pieces.length; i++){
+        int[] white = state.getPieceFields(WHITEPIECE);
+        for(int n = 0; n < state.getPieceCount(WHITEPIECE); n++){
+            int i = white[n];
             //white outposts can only be in field 1 - 25
-            //Black outposts can only be in field 31-50
-                        
-            if(11 <= i && i <= 25 && pieces[i] == 1){
+            if(11 <= i && i <= 25){
                 //should have another whitepiece in max 1 move away
                 // +9, +10, +11, +5, (+4, +6) depending on odd or even row
                 int[] piecesToCheck = new int[]{
@@ -603,10 +1337,16 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
                 if(((i-1)/5)%2 == 0){
                     piecesToCheck[4] = i+6;
                 }
-                if(!isPiece(pieces, true, piecesToCheck)){
+                if(!isPiece(state, true, piecesToCheck)){
                     whiteScore--;
                 }
-            } else if(31 <= i && i <= 40 && pieces[i] == 2){
+            }
+        }
+        int[] black = state.getPieceFields(BLACKPIECE);
+        for(int n = 0; n < state.getPieceCount(BLACKPIECE); n++){
+            int i = black[n];
+            //Black outposts can only be in field 31-50
+            if(31 <= i && i <= 40){
                 //should have another blackpiece in max 1 move away
                 // -9, -10, *11, -5, (-4, -6) depending on odd or even row
                 int[] piecesToCheck = new int[]{
@@ -619,7 +1359,7 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
                 if(((i-1)/5)%2 == 0){
                     piecesToCheck[4] = i-6;
                 }
-                if(!isPiece(pieces, false, piecesToCheck)){
+                if(!isPiece(state, false, piecesToCheck)){
                     blackScore--;
                 }
             }
@@ -630,16 +1370,17 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
     
     /**
      * Check if there is a piece on one of the given locations
-     * @param pieces list of all pieces
+     * @param state the draughtsState
      * @param white boolean if you look for a white or black piece
      * @param fields the fields to search on
      * @return boolean if there is a piece
      */
-    boolean isPiece(int[] pieces, boolean white, int[] fields){
+    boolean isPiece(DraughtsState state, boolean white, int[] fields){
         int piece = white ? 1 : 0;
         int king = white ? 3 : 4;
         for(int i =0; i < fields.length; i++){
-            if(pieces[fields[i]] == piece || pieces[fields[i]] == king){
+            int p = state.getPiece(fields[i]);
+            if(p == piece || p == king){
                 return true;
             }
         }
@@ -647,74 +1388,130 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
     }
     
     /**
-     * Order the moves to optimize the alpha beta search by finding the optimal move early on
+     * Get the move buffer for the given depth, it is created the first time the search reaches this depth
+     * @param depth the current depth
+     * @return a buffer that can hold all moves of a state
+     */
+    long[] moveBuffer(int depth){
+        if(depth >= moveBuffers.length){
+            moveBuffers = Arrays.copyOf(moveBuffers, 2 * depth);
+            orderKeys = Arrays.copyOf(orderKeys, 2 * depth);
+        }
+        if(moveBuffers[depth] == null){
+            moveBuffers[depth] = new long[DraughtsState.MAX_MOVES];
+            orderKeys[depth] = new long[DraughtsState.MAX_MOVES];
+        }
+        return moveBuffers[depth];
+    }
+    
+    /**
+     * Generate the moves and give each move a score once, to optimize the alpha beta search by finding the optimal move early on
+     * The hash move is tried first, then the move of the previous itteration, the killer moves and the counter move. The other moves
+     * are ordered by their history heuristic score
      * @param state The draughtstState
+     * @param hashMove The best move of the state in the transposition table if it exists
      * @param previousMove The move done in the last itteration on the same depth if it exists
-     * @return And ordered list on with the most likely to be best move first
+     * @param moves The buffer to put the moves in
+     * @param depth The current depth, which owns the buffer
+     * @return The number of moves
      */
-    List<Move> orderMoves(DraughtsState state, Move previousMove){
-        List<Move> moves = state.getMoves();
+    int scoreMoves(DraughtsState state, long hashMove, long previousMove, long[] moves, int depth){
+        int count = state.generateMoves(moves);
+        long[] keys = orderKeys[depth];
+        boolean white = state.isWhiteToMove();
+        long[] killers = killerMoves[depth];
+        long counterMove = PackedMove.NONE;
+        if(depth > 0){
+            long lastMove = playedMoves[depth - 1];
+            counterMove = counterMoves[white ? 0 : 1][PackedMove.from(lastMove)][PackedMove.to(lastMove)];
+        }
         
-        Collections.sort(moves, new Comparator<Move>() {
-            @Override
-            public int compare(Move lhs, Move rhs) {
-                //If the left or right move was the best move for this depth in the previous itteration we always prefer that one
-                if(previousMove != null){
-                   if(lhs.equals(previousMove)){
-                       return -1;
-                   } else if(rhs.equals(previousMove)){
-                       return 1;
-                   }                   
-                }
-                
-                //Get the score from the history heuristic table for both moves
-                int lhsScore = HistoryHeuristicScore(lhs);
-                int rhsScore = HistoryHeuristicScore(rhs);                    
-                
-                //If they are equal then we try to sort them based on the last transposition table
-                if(lhsScore == rhsScore){
-                    lhsScore = PreviousTranspositionScore(lhs, state).score;
-                    rhsScore = PreviousTranspositionScore(rhs, state).score;
-                    
-                    if(!state.isWhiteToMove()){
-                        lhsScore *= -1;
-                        rhsScore *= -1;
-                    }
-                }
-               
-                return lhsScore > rhsScore ? -1 : (lhsScore < rhsScore) ? 1 : 0;
+        for(int i = 0; i < count; i++){
+            long move = moves[i];
+            //The kind of the move is put in the high 32 bits and the history heuristic score in the low 32 bits
+            long kind = 0;
+            if(move == hashMove){
+                kind = 5;
+            } else if(move == previousMove){
+                kind = 4;
+            } else if(move == killers[0]){
+                kind = 3;
+            } else if(move == killers[1]){
+                kind = 2;
+            } else if(move == counterMove){
+                kind = 1;
             }
-        });
-        return moves;
+            keys[i] = (kind << 32) | HistoryHeuristicScore(move, white);
+        }
+        return count;
     }
     
     /**
-     * Get the score of a move based on the transposition table of the previous itteration
-     * @param move the move to check
-     * @param state the DraughstState
-     * @return the score of the move from the previous transTable
+     * Select the move with the highest score of the moves that are not searched yet, and put it at the given index
+     * @param moves The moves
+     * @param keys The scores of the moves
+     * @param index The index of the move that is searched next, the moves before it are already searched
+     * @param count The number of moves
+     * @return The move at index
      */
-    returnObject PreviousTranspositionScore(Move move, DraughtsState state){
-        state.doMove(move);
-        int hascode = HashCode(state);
-        returnObject res = PreviousTransPositionTable.getOrDefault(hascode, new returnObject(MIN_VALUE, new ArrayList<Move>()));
-        state.undoMove(move);
-        return res;
+    long selectMove(long[] moves, long[] keys, int index, int count){
+        int best = index;
+        for(int i = index + 1; i < count; i++){
+            if(keys[i] > keys[best]){
+                best = i;
+            }
+        }
+        if(best != index){
+            long move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            long key = keys[best];
+            keys[best] = keys[index];
+            keys[index] = key;
+        }
+        return moves[index];
+    }
+    
+    //Remember a move that caused a cut off as killer move for this depth and as counter move to the move of the opponent
+    void SetCutOffMove(long move, boolean white, int depth){
+        //Captures are compulsory, so they are only played if they are possible anyway
+        if(PackedMove.isCapture(move)){
+            return;
+        }
+        long[] killers = killerMoves[depth];
+        if(killers[0] != move){
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        if(depth > 0){
+            long lastMove = playedMoves[depth - 1];
+            counterMoves[white ? 0 : 1][PackedMove.from(lastMove)][PackedMove.to(lastMove)] = move;
+        }
     }
     
     //Get the score of a move based on it's HistoryHeuristic
-    int HistoryHeuristicScore(Move move){
-        return HistoryHeuristic[move.isWhiteMove() ? 0 : 1][move.getBeginField()][move.getEndField()];
+    int HistoryHeuristicScore(long move, boolean white){
+        return HistoryHeuristicScore(HistoryHeuristic, move, white);
+    }
+    
+    //Get the score of a move in the given history heuristic table
+    static int HistoryHeuristicScore(int[][][] history, long move, boolean white){
+        return history[white ? 0 : 1][PackedMove.from(move)][PackedMove.to(move)];
     }
     
     //set the history heuristic of a move
-    void SetHistoryHeuristic(Move move, int depth){
-        if(move != null){
+    void SetHistoryHeuristic(long move, boolean white, int depth){
+        SetHistoryHeuristic(HistoryHeuristic, move, white, depth);
+    }
+    
+    //set the history heuristic of a move in the given table
+    static void SetHistoryHeuristic(int[][][] history, long move, boolean white, int depth){
+        if(move != PackedMove.NONE){
             //The history heuristic keeps track how many times and for which deepth a move was deceided that it was the
             //best move possible. Because if a move is chosen as best move 20 times before it is move likely that for the next
             //check it also is the best move rather than anothe move that only has been the best move once. Also how higher
             //The depth the more weight this counter has
-            HistoryHeuristic[move.isWhiteMove()? 0 : 1][move.getBeginField()][move.getEndField()] += Math.pow(2, depth);
+            history[white ? 0 : 1][PackedMove.from(move)][PackedMove.to(move)] += Math.pow(2, depth);
         }
     }
       
@@ -723,54 +1520,4 @@ public class Group11DraughtsPlayer extends DraughtsPlayer {
 //    public String getName() {
 //        return "test ";
 //    }
-   
-    /**
-     * Validate if the given list of moves actually results in the expected score. For some reason
-     * This does not always happen (In really rare cases) which sometimes resulted the ai to make
-     * stupid moves thinking it was great for some reason. I have not been able to find the bug 
-     * that caused this so I just ignore the really rare results where this happens by using this
-     * validate method to check if the expected result is actually the result.
-     * @param item A returnobject with the moves and expected score
-     * @param state A draughtsState to try it on
-     * @return true or false if they are equal
-     */
-    public boolean Validate(returnObject item, DraughtsState state){
-        DraughtsState clonedState = state.clone();
-        for(Move move: item.moves){
-            if(move != null){
-                clonedState.doMove(move);
-            }
-        }
-        return evaluate(clonedState) == item.score;
-    }
-    
-    /**
-     * An object used to return moves in alphabeta rather than just it's score
-     * This way we can return the list of bestmoves that were used when finding
-     * the best move. These can then later be used to order the moves in the next
-     * itterations
-     */
-    class returnObject{
-        int score;
-        List<Move> moves;
-
-        public returnObject(int score, List<Move> moves){
-            this.score = score;
-            this.moves = moves;
-        }
-
-        //A print method to print the list of moves it has
-        public String ToString(){
-            String res = "Score: " + score + " ";
-            for(Move move : moves){
-                if(move != null){
-                    res += move.getBeginField();
-                    res += move.isCapture() ? "x" : "-";
-                    res += move.getEndField() + " ";
-                }
-            }
-            return res;
-        }
-    }
 }
-
@@ -0,0 +1,367 @@
+package nl.tue.s2id90.group11;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Tunes the weights of the evaluation of Group11DraughtsPlayer on recorded games, with the method
+ * of Texel: the evaluation of a position is turned into an expected result with a logistic function,
+ * and the weights are fitted so that the squared difference with the real results of the games is as
+ * small as possible. Only quiet positions are used, in which the player to move can not capture,
+ * because there the evaluation is what the search would use.
+ * <pre>
+ *   TexelTuner [-iterations n] [-rate r] [-skip plies] file...
+ * </pre>
+ * The files are PDN files, or zip files with PDN files like the roundrobin.zip that OfflineTournament
+ * writes. The gradient is computed over all positions with a parallel stream, so all cores are used.
+ * The result is printed as a constructor call and as the field values of the player.
+ */
+public class TexelTuner {
+    //The names of the weights, in the order of the five argument constructor of the player
+    static final String[] NAMES = {"piecedifferenceWeight", "positionWeight", "tempiWeight", "piecesSpreadWeight", "outPostWeight"};
+    static final int WEIGHTS = NAMES.length;
+
+    //A move of a game in a PDN file, like 31-27 or 27x18x9
+    private static final Pattern MOVE = Pattern.compile("\\d+(?:[-x]\\d+)+");
+    private static final Pattern RESULT = Pattern.compile("\\[Result \"(\\d+)-(\\d+)\"\\]");
+
+    /**
+     * A quiet position of a game: the terms of the evaluation that are multiplied by a weight, the term
+     * that is not, and the result of the game for white (1 for a win, 0.5 for a draw and 0 for a loss)
+     */
+    static class Position {
+        final double[] terms = new double[WEIGHTS];
+        final double fixed;
+        final double result;
+
+        Position(Group11DraughtsPlayer player, DraughtsState state, double result) {
+            terms[0] = player.PieceDifference(state);
+            terms[1] = player.PositionScore(state);
+            terms[2] = player.Tempi(state);
+            terms[3] = player.PieceSpread(state);
+            terms[4] = player.OutPostScore(state);
+            fixed = player.KeepCenterPieces(state);
+            this.result = result;
+        }
+
+        //The evaluation for white with the given weights, like evaluateFromScratch but without rounding
+        double evaluate(double[] weights) {
+            double score = fixed;
+            for (int i = 0; i < WEIGHTS; i++) {
+                score += weights[i] * terms[i];
+            }
+            return score;
+        }
+    }
+
+    private final List<Position> positions = new ArrayList<>();
+    //Only used for the terms of the evaluation, which do not depend on its weights
+    private final Group11DraughtsPlayer player = new Group11DraughtsPlayer();
+    //The scale of the logistic function, fitted once for the initial weights
+    private double k = 0.01;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = 1000, skip = 10;
+        double rate = 0.5;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "-rate": rate = Double.parseDouble(args[++i]); break;
+                case "-skip": skip = Integer.parseInt(args[++i]); break;
+                default: files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: TexelTuner [-iterations n] [-rate r] [-skip plies] file...");
+            return;
+        }
+
+        TexelTuner tuner = new TexelTuner();
+        int games = 0;
+        for (String file : files) {
+            games += tuner.read(new File(file), skip);
+        }
+        System.out.format("%d quiet positions from %d games\n", tuner.positions.size(), games);
+        if (tuner.positions.isEmpty()) {
+            return;
+        }
+
+        Group11DraughtsPlayer player = tuner.player;
+        double[] weights = {player.piecedifferenceWeight, player.positionWeight, player.tempiWeight, player.piecesSpreadWeight, player.outPostWeight};
+        tuner.fitScale(weights);
+        double before = tuner.error(weights);
+        System.out.format("scale %.5f, error %.6f for %s\n", tuner.k, before, Arrays.toString(weights));
+
+        double[] tuned = tuner.tune(weights, iterations, rate);
+        int[] rounded = new int[WEIGHTS];
+        double[] roundedWeights = new double[WEIGHTS];
+        for (int i = 0; i < WEIGHTS; i++) {
+            rounded[i] = (int) Math.round(tuned[i]);
+            roundedWeights[i] = rounded[i];
+        }
+        System.out.format("error %.6f after %d iterations, %.6f for the rounded weights\n",
+                tuner.error(tuned), iterations, tuner.error(roundedWeights));
+        System.out.format("new Group11DraughtsPlayer(%d, %d, %d, %d, %d)\n", rounded[0], rounded[1], rounded[2], rounded[3], rounded[4]);
+        for (int i = 0; i < WEIGHTS; i++) {
+            System.out.format("    int %s = %d;\n", NAMES[i], rounded[i]);
+        }
+    }
+
+    /**
+     * Read the games of a PDN file, or of all PDN files in a zip file
+     * @param file the file
+     * @param skip the number of plies at the start of a game of which the positions are not used
+     * @return the number of games that were read
+     */
+    int read(File file, int skip) throws IOException {
+        if (!file.getName().toLowerCase().endsWith(".zip")) {
+            return readPDN(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), skip);
+        }
+        int games = 0;
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(file.toPath()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (entry.getName().toLowerCase().endsWith(".pdn")) {
+                    games += readPDN(new String(readAll(zip), StandardCharsets.UTF_8), skip);
+                }
+            }
+        }
+        return games;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Replay the games of a PDN text and keep their quiet positions. A game starts at its tags, the
+     * result is the number of points of white and black, as OfflineTournament writes it.
+     * A game of which the moves are not legal, or can be played in more than one way, is skipped
+     * @return the number of games that were read
+     */
+    int readPDN(String pdn, int skip) {
+        int games = 0;
+        for (String game : splitGames(pdn)) {
+            Matcher result = RESULT.matcher(game);
+            if (!result.find()) {
+                continue;
+            }
+            int white = Integer.parseInt(result.group(1));
+            int black = Integer.parseInt(result.group(2));
+            double score = white > black ? 1 : white == black ? 0.5 : 0;
+
+            //The moves come after the last tag
+            String moves = game.substring(game.lastIndexOf(']') + 1);
+            List<String> notations = new ArrayList<>();
+            Matcher move = MOVE.matcher(moves);
+            while (move.find()) {
+                notations.add(move.group());
+            }
+            Move[] played = new Move[notations.size()];
+            int ways = replay(new DraughtsState(), notations, 0, played);
+            if (ways != 1) {
+                System.err.println((ways == 0 ? "illegal moves" : "ambiguous moves") + " in game " + (games + 1) + ", the game is skipped");
+                continue;
+            }
+
+            DraughtsState state = new DraughtsState();
+            for (int ply = 0; ply < played.length; ply++) {
+                if (ply >= skip && !state.hasCapture()) {
+                    positions.add(new Position(player, state, score));
+                }
+                state.doMove(played[ply]);
+            }
+            if (!state.isEndState() && !state.hasCapture()) {
+                positions.add(new Position(player, state, score));
+            }
+            games++;
+        }
+        return games;
+    }
+
+    //Every game starts with a block of tags, the moves follow until the next block of tags
+    private static List<String> splitGames(String pdn) {
+        List<String> games = new ArrayList<>();
+        StringBuilder game = new StringBuilder();
+        boolean inMoves = false;
+        for (String line : pdn.split("\\r?\\n")) {
+            boolean tag = line.trim().startsWith("[");
+            if (tag && inMoves) {
+                games.add(game.toString());
+                game.setLength(0);
+            }
+            inMoves = !tag && (inMoves || !line.trim().isEmpty());
+            game.append(line).append('\n');
+        }
+        games.add(game.toString());
+        return games;
+    }
+
+    /**
+     * Find the moves of a game. A notation that fits more than one legal move is tried with each
+     * of them, the rest of the game tells which one was played
+     * @param state the state before move i, it is changed during the search but the same afterwards
+     * @param notations the notations of the moves of the game
+     * @param i the index of the first move to find
+     * @param played filled with the moves from index i on if there is exactly one way
+     * @return the number of ways in which the moves from index i on can be played, but at most 2
+     */
+    private static int replay(DraughtsState state, List<String> notations, int i, Move[] played) {
+        if (i == notations.size()) {
+            return 1;
+        }
+        int ways = 0;
+        for (Move m : find(state, notations.get(i))) {
+            state.doMove(m);
+            int w = replay(state, notations, i + 1, played);
+            state.undoMove(m);
+            if (w > 0) {
+                //A second way only fills played if the first did not, so played is only complete when there is one way
+                played[i] = m;
+                ways += w;
+                if (ways > 1) {
+                    return 2;
+                }
+            }
+        }
+        return ways;
+    }
+
+    //Find the legal moves with the given notation, a capture can also be written with only its first and last field
+    //and then more than one capture can fit, OfflineTournament writes them like that
+    private static List<Move> find(DraughtsState state, String notation) {
+        String[] fields = notation.split("[-x]");
+        int begin = Integer.parseInt(fields[0]);
+        int end = Integer.parseInt(fields[fields.length - 1]);
+        List<Move> full = new ArrayList<>();
+        List<Move> matches = new ArrayList<>();
+        for (Move m : state.getMoves()) {
+            if (notation.equals(m.getFullNotation())) {
+                full.add(m);
+            } else if (m.getBeginField() == begin && m.getEndField() == end) {
+                matches.add(m);
+            }
+        }
+        return full.isEmpty() ? matches : full;
+    }
+
+    //The expected result for white of an evaluation
+    private double sigmoid(double evaluation) {
+        return 1 / (1 + Math.exp(-k * evaluation));
+    }
+
+    /**
+     * The mean squared difference between the results and the expected results, over all positions in parallel
+     * @param weights the weights
+     * @return the error
+     */
+    double error(double[] weights) {
+        return positions.parallelStream()
+                .mapToDouble(p -> {
+                    double d = p.result - sigmoid(p.evaluate(weights));
+                    return d * d;
+                })
+                .sum() / positions.size();
+    }
+
+    /**
+     * The gradient of the error to the weights, every thread of the stream sums the gradient of its
+     * positions in an array of its own and the arrays are added at the end
+     * @param weights the weights
+     * @return the gradient
+     */
+    double[] gradient(double[] weights) {
+        double[] gradient = positions.parallelStream().collect(
+                () -> new double[WEIGHTS],
+                (sum, p) -> {
+                    double s = sigmoid(p.evaluate(weights));
+                    double factor = -2 * (p.result - s) * s * (1 - s) * k;
+                    for (int i = 0; i < WEIGHTS; i++) {
+                        sum[i] += factor * p.terms[i];
+                    }
+                },
+                (a, b) -> {
+                    for (int i = 0; i < WEIGHTS; i++) {
+                        a[i] += b[i];
+                    }
+                });
+        for (int i = 0; i < WEIGHTS; i++) {
+            gradient[i] /= positions.size();
+        }
+        return gradient;
+    }
+
+    /**
+     * Fit the scale of the logistic function to the given weights, so the weights are only tuned
+     * relative to each other and keep about the size they have in the player
+     */
+    void fitScale(double[] weights) {
+        //Golden section search on the logarithm of the scale
+        double lo = Math.log(1e-5), hi = Math.log(1);
+        double g = (Math.sqrt(5) - 1) / 2;
+        for (int i = 0; i < 60; i++) {
+            double a = hi - g * (hi - lo), b = lo + g * (hi - lo);
+            k = Math.exp(a);
+            double ea = error(weights);
+            k = Math.exp(b);
+            double eb = error(weights);
+            if (ea < eb) {
+                hi = b;
+            } else {
+                lo = a;
+            }
+        }
+        k = Math.exp((lo + hi) / 2);
+    }
+
+    /**
+     * Minimise the error with Adam, a gradient descent in which every weight gets a step size of its own.
+     * The terms have very different sizes, so one step size for all weights would not work
+     * @param weights the initial weights
+     * @param iterations the number of steps
+     * @param rate the largest step of a weight in one iteration
+     * @return the tuned weights
+     */
+    double[] tune(double[] weights, int iterations, double rate) {
+        double[] w = weights.clone();
+        double[] m = new double[WEIGHTS];
+        double[] v = new double[WEIGHTS];
+        double beta1 = 0.9, beta2 = 0.999;
+        for (int t = 1; t <= iterations; t++) {
+            double[] gradient = gradient(w);
+            for (int i = 0; i < WEIGHTS; i++) {
+                m[i] = beta1 * m[i] + (1 - beta1) * gradient[i];
+                v[i] = beta2 * v[i] + (1 - beta2) * gradient[i] * gradient[i];
+                double mHat = m[i] / (1 - Math.pow(beta1, t));
+                double vHat = v[i] / (1 - Math.pow(beta2, t));
+                w[i] -= rate * mHat / (Math.sqrt(vHat) + 1e-12);
+            }
+            if (t % 100 == 0) {
+                System.out.format("iteration %d: error %.6f for %s\n", t, error(w), Arrays.toString(round(w)));
+            }
+        }
+        return w;
+    }
+
+    private static long[] round(double[] weights) {
+        return Arrays.stream(weights).mapToLong(Math::round).toArray();
+    }
+}
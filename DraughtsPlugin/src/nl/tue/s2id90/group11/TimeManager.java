@@ -0,0 +1,129 @@
+package nl.tue.s2id90.group11;
+
+/**
+ * Decides how long the search of a move may take. It has two limits:
+ * the soft limit, after which no new itteration is started, and the hard
+ * limit, at which the search is stopped even in the middle of an itteration.
+ * A new itteration is also not started if the branching factor predicts that it
+ * can not be finished before the hard limit, because an unfinished itteration
+ * is thrown away. If the best move changes between itterations the soft limit
+ * is extended, because the search has not made up its mind yet.
+ * The search asks hardLimitReached() every so many nodes, so that reading the
+ * clock costs hardly anything.
+ */
+public class TimeManager {
+    //The time that is kept free for returning the move and for the GUI, in milliseconds
+    int safetyMargin = 50;
+    //The number of moves we expect still have to be done when the time left in the game is known
+    int movesToGo = 30;
+    //The part of the time of a move that is used before no new itteration is started
+    double softFactor = 0.4;
+    //How much the soft limit grows each time the best move changes, and how far it can grow at most
+    double instabilityFactor = 1.4;
+    double maxExtension = 2.5;
+
+    //They are volatile because a pondering search is timed from the moment the opponent did the expected move, which is told by another thread
+    private volatile long startTime;
+    private volatile long softLimit;
+    private volatile long hardLimit;
+    //The extension is only changed by the search thread; start() asks for the reset through resetExtension, so a pondering search that changes the extension at the same time can not undo the reset
+    private volatile double extension = 1.0;
+    private volatile boolean resetExtension = false;
+    private volatile boolean active = false;
+
+    /**
+     * Start timing the search of a move
+     * @param moveTime the time that can be used for this move in milliseconds, 0 if there is no limit for a single move
+     * @param timeLeft the time left in the game in milliseconds, 0 if there is no clock for the game
+     * @param increment the time added to the clock after each move in milliseconds
+     * @param moveNumber the number of moves done in the game so far, by both players
+     */
+    public void start(long moveTime, long timeLeft, long increment, int moveNumber) {
+        startTime = System.nanoTime();
+        resetExtension = true;
+        long hard = Long.MAX_VALUE;
+        long soft = Long.MAX_VALUE;
+        if (timeLeft > 0) {
+            //In the opening more moves are still to come, but the early moves also matter less, so the time is spread evenly
+            long toGo = Math.max(10, movesToGo - moveNumber / 8);
+            soft = timeLeft / toGo + increment * 3 / 4;
+            hard = Math.min(timeLeft / 4 + increment, soft * 4);
+        }
+        if (moveTime > 0) {
+            hard = Math.min(hard, moveTime);
+            soft = Math.min(soft, (long) (moveTime * softFactor));
+        }
+        if (hard != Long.MAX_VALUE) {
+            hard = Math.max(1, hard - safetyMargin);
+            hardLimit = hard * 1000000L;
+            softLimit = Math.min(hard, Math.max(1, soft)) * 1000000L;
+        }
+        //Set last, so the limits are known when the search sees that it is timed
+        active = hard != Long.MAX_VALUE;
+    }
+
+    /**
+     * Stop using the time manager, the search only stops when it is told to
+     */
+    public void stop() {
+        active = false;
+    }
+
+    //If the search is timed by this time manager
+    public boolean isActive() {
+        return active;
+    }
+
+    //The time since the search started in nanoseconds
+    public long elapsed() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * @return true if the search has to stop right away
+     */
+    public boolean hardLimitReached() {
+        return active && elapsed() >= hardLimit;
+    }
+
+    /**
+     * Tell the time manager whether the best move changed in the itteration that just finished
+     * @param changed true if the best move is another one than in the previous itteration
+     */
+    public void bestMoveChanged(boolean changed) {
+        applyReset();
+        if (changed) {
+            extension = Math.min(maxExtension, extension * instabilityFactor);
+        } else {
+            //A stable best move slowly gives the extra time back
+            extension = Math.max(1.0, extension * 0.9);
+        }
+    }
+
+    /**
+     * Decide if a new itteration can be started
+     * @param lastIteration the time the last itteration took in nanoseconds
+     * @param branchingFactor how many times longer an itteration takes than the one before it
+     * @return true if there is time for the next itteration
+     */
+    public boolean startNextIteration(long lastIteration, double branchingFactor) {
+        if (!active) {
+            return true;
+        }
+        applyReset();
+        long now = elapsed();
+        if (now >= Math.min(hardLimit, (long) (softLimit * extension))) {
+            return false;
+        }
+        //An itteration that can not be finished is useless, so it is not started
+        return now + (long) (lastIteration * branchingFactor) < hardLimit;
+    }
+
+    //Called by the search thread, resets the extension if start() was called since the last call
+    private void applyReset() {
+        if (resetExtension) {
+            resetExtension = false;
+            extension = 1.0;
+        }
+    }
+}
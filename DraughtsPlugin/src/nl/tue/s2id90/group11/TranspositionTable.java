@@ -0,0 +1,144 @@
+package nl.tue.s2id90.group11;
+
+/**
+ * A transposition table of fixed size, stored in a single long array so that
+ * lookups and stores do not create objects.
+ * Every entry takes three longs: a check, the packed best move and an info
+ * word with the score, depth, bound type and age. The check is the hash key
+ * xor the other two longs, so an entry of which the longs were written by
+ * different stores is not recognized and simply counts as a miss.
+ * The entries are grouped in buckets of two: the first entry keeps the deepest
+ * result of the current search, the second one is always replaced.
+ */
+public class TranspositionTable {
+    //The bound types of a score
+    public static final int LOWER = 1;  //The score is a lower bound, the search failed high
+    public static final int UPPER = 2;  //The score is an upper bound, the search failed low
+    public static final int EXACT = 3;
+
+    //The info word of a miss, never a valid info word because the bound is never 0
+    public static final long NONE = 0L;
+
+    private static final int ENTRY_SIZE = 3;
+    private static final int BUCKET_SIZE = 2 * ENTRY_SIZE;
+
+    private final long[] table;
+    private final long bucketMask;
+    private int age = 0;
+
+    /**
+     * Create a table that takes about the given number of megabytes
+     * @param megabytes the size of the table, at least 1
+     */
+    public TranspositionTable(int megabytes) {
+        long bytes = (long) Math.max(1, megabytes) << 20;
+        //The number of buckets is the largest power of 2 that fits
+        long buckets = Long.highestOneBit(bytes / (BUCKET_SIZE * 8));
+        buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / BUCKET_SIZE));
+        table = new long[(int) buckets * BUCKET_SIZE];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Start a new search, entries of earlier searches are replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+    }
+
+    /**
+     * Look up the info word of a state
+     * @param key the hash key of the state
+     * @return the info word, or NONE if the state is not in the table
+     */
+    public long probe(long key) {
+        int i = find(key);
+        return i < 0 ? NONE : table[i + 2];
+    }
+
+    /**
+     * Look up the best move of a state
+     * @param key the hash key of the state
+     * @return the packed best move, or PackedMove.NONE if it is not known
+     */
+    public long move(long key) {
+        int i = find(key);
+        return i < 0 ? 0L : table[i + 1];
+    }
+
+    /**
+     * Store the result of a search
+     * @param key the hash key of the state
+     * @param depth the remaining depth of the search
+     * @param bound LOWER, UPPER or EXACT
+     * @param score the score
+     * @param move the packed best move, or PackedMove.NONE if there is none
+     */
+    public void store(long key, int depth, int bound, int score, long move) {
+        int b = bucket(key);
+        int i;
+        if (key(b) == key) {
+            i = b;
+        } else if (key(b + ENTRY_SIZE) == key) {
+            i = b + ENTRY_SIZE;
+        } else {
+            //Replace the first entry if it is from an older search or not deeper, otherwise use the second one
+            long info = table[b + 2];
+            i = (age(info) != age || depth(info) <= depth) ? b : b + ENTRY_SIZE;
+        }
+        //Keep the best move of the state if this search did not find one
+        if (move == 0L && key(i) == key) {
+            move = table[i + 1];
+        }
+        long info = (score & 0xFFFFFFFFL)
+                  | (long) Math.max(0, Math.min(depth, 0xFF)) << 32
+                  | (long) bound << 40
+                  | (long) age << 48;
+        table[i] = key ^ move ^ info;
+        table[i + 1] = move;
+        table[i + 2] = info;
+    }
+
+    //Get the score of an info word
+    public static int score(long info) {
+        return (int) info;
+    }
+
+    //Get the remaining depth of an info word
+    public static int depth(long info) {
+        return (int) (info >>> 32) & 0xFF;
+    }
+
+    //Get the bound type of an info word
+    public static int bound(long info) {
+        return (int) (info >>> 40) & 0x3;
+    }
+
+    static int age(long info) {
+        return (int) (info >>> 48) & 0xFF;
+    }
+
+    //Get the index of the entry with the given key, or -1
+    private int find(long key) {
+        int b = bucket(key);
+        if (key(b) == key) return b;
+        if (key(b + ENTRY_SIZE) == key) return b + ENTRY_SIZE;
+        return -1;
+    }
+
+    //The key of the entry at index i, an empty entry has key 0
+    private long key(int i) {
+        return table[i] ^ table[i + 1] ^ table[i + 2];
+    }
+
+    private int bucket(long key) {
+        return (int) (key & bucketMask) * BUCKET_SIZE;
+    }
+}
@@ -0,0 +1,374 @@
+package nl.tue.s2id90.group11;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.PackedMove;
+import static nl.tue.s2id90.group11.Group11DraughtsPlayer.INFINITY;
+import static nl.tue.s2id90.group11.Group11DraughtsPlayer.MAX_PLY;
+
+/**
+ * A parallel alphabeta search that uses the young brothers wait concept: the first move of a state is
+ * searched on its own, because it often causes a cut off. Only if it does not, the other moves (the young
+ * brothers) are searched in parallel as tasks of a ForkJoinPool, which lets idle threads steal them.
+ * If one of the young brothers causes a cut off, the others are aborted together with all their tasks.
+ * The evaluation and the transposition table are those of the player, the table can be used by all threads
+ * at the same time. Every thread of the pool has a history heuristic table of its own, so the threads never
+ * write to the same table.
+ */
+public class YoungBrothersWaitSearch {
+    private final Group11DraughtsPlayer player;
+    private final ForkJoinPool pool;
+
+    //The brothers are only searched in parallel if at least this many plies are left, below that a task costs more than it saves
+    int splitDepth = 3;
+    //The number of states visited by the last search
+    final LongAdder nodeCount = new LongAdder();
+
+    //Set when the player is asked to stop, every task checks it
+    private volatile boolean stopped = false;
+
+    //The history heuristic table of each thread, it is cleared the first time the thread uses it after clearHistory()
+    private final ThreadLocal<History> history = ThreadLocal.withInitial(History::new);
+    private volatile int historyGeneration = 0;
+
+    private static final class History {
+        int generation = -1;
+        final int[][][] scores = new int[2][51][51];
+    }
+
+    //Thrown in a task that is aborted, it has no stack trace because it is only used to leave the search quickly
+    private static final class Aborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Aborted() {
+            super(null, null, false, false);
+        }
+    }
+    private static final Aborted ABORTED = new Aborted();
+
+    /**
+     * Create a search that uses the given number of threads
+     * @param player the player whose evaluation, history heuristic and transposition table are used
+     * @param threads the number of threads
+     */
+    public YoungBrothersWaitSearch(Group11DraughtsPlayer player, int threads) {
+        this.player = player;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Search the given node to the given depth, the best move is set in the node
+     * @param node the root node
+     * @param alpha
+     * @param beta
+     * @param maxDepth maximum recursion Depth
+     * @return the computed value of this node for the player that is to move
+     * @throws AIStoppedException thrown whenever the search is stopped, all tasks are aborted before it is thrown
+     */
+    public int search(DraughtsNode node, int alpha, int beta, int maxDepth) throws AIStoppedException {
+        nodeCount.reset();
+        Task root = new Task(null, node.getState().clone(), alpha, beta, 0, maxDepth);
+        Integer score = pool.invoke(root);
+        if (score == null) {
+            stopped = false;
+            throw new AIStoppedException();
+        }
+        node.setBestMove(root.bestMove);
+        return score;
+    }
+
+    //Forget an earlier stop, before a new search starts
+    public void reset() {
+        stopped = false;
+    }
+
+    /**
+     * Clear the history heuristic tables of all threads, before the search of a new move
+     */
+    public void clearHistory() {
+        historyGeneration++;
+    }
+
+    //Get the history heuristic table of the current thread
+    private int[][][] history() {
+        History h = history.get();
+        int generation = historyGeneration;
+        if (h.generation != generation) {
+            for (int[][] side : h.scores) {
+                for (int[] from : side) {
+                    Arrays.fill(from, 0);
+                }
+            }
+            h.generation = generation;
+        }
+        return h.scores;
+    }
+
+    /**
+     * Stop the search, all tasks are aborted
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    //Get the number of threads of the pool
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stop the threads of the pool
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * A state that is searched as a task of its own. It has its own copy of the state and its own move buffers,
+     * because a thread that waits for a task can execute another task in the meantime.
+     */
+    private class Task extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        final Task parent;
+        final DraughtsState state;
+        final int alpha, beta, depth, maxDepth;
+        //Set when a brother caused a cut off, so this task is not needed anymore
+        volatile boolean aborted = false;
+        //The best move of the state of this task
+        long bestMove = PackedMove.NONE;
+        //The best move of the young brothers that were searched last by this task
+        long splitBest = PackedMove.NONE;
+        //The number of nodes of this task, the limits are checked when the task starts and then every player.timeCheckNodes nodes
+        int timeCheckCount = 0;
+        //The move buffers and order scores per depth, created when the task reaches that depth
+        final long[][] moveBuffers = new long[MAX_PLY][];
+        final long[][] orderKeys = new long[MAX_PLY][];
+        //The history heuristic table of the thread that runs this task, a task is run by a single thread
+        int[][][] history;
+
+        Task(Task parent, DraughtsState state, int alpha, int beta, int depth, int maxDepth) {
+            this.parent = parent;
+            this.state = state;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+        }
+
+        @Override
+        protected Integer compute() {
+            try {
+                history = history();
+                return alphaBeta(this, state, alpha, beta, depth, maxDepth);
+            } catch (Aborted ex) {
+                //null tells the parent that this task has no result
+                return null;
+            }
+        }
+
+        //A task is aborted if it, or one of the tasks it is part of, is aborted
+        boolean isAborted() {
+            if ((timeCheckCount++ & (player.timeCheckNodes - 1)) == 0
+                    && player.budgetSpent(player.searchNodeCount + nodeCount.sum())) {
+                //The time is up or the node budget is spent, the whole search stops
+                stopped = true;
+            }
+            if (stopped) return true;
+            for (Task t = this; t != null; t = t.parent) {
+                if (t.aborted) return true;
+            }
+            return false;
+        }
+
+        long[] moveBuffer(int depth) {
+            if (moveBuffers[depth] == null) {
+                moveBuffers[depth] = new long[DraughtsState.MAX_MOVES];
+                orderKeys[depth] = new long[DraughtsState.MAX_MOVES];
+            }
+            return moveBuffers[depth];
+        }
+    }
+
+    /**
+     * Alphabeta in negamax form for the given task, where the young brothers are searched in parallel
+     * if enough plies are left.
+     */
+    private int alphaBeta(Task task, DraughtsState state, int alpha, int beta, int depth, int maxDepth) {
+        if (task.isAborted()) {
+            throw ABORTED;
+        }
+        nodeCount.increment();
+
+        TranspositionTable table = player.TransPositionTable;
+        long hashcode = state.getHashKey();
+        int remaining = Math.max(0, maxDepth - depth);
+        long info = table.probe(hashcode);
+        if (depth > 0 && info != TranspositionTable.NONE && TranspositionTable.depth(info) >= remaining) {
+            int ttScore = TranspositionTable.score(info);
+            int bound = TranspositionTable.bound(info);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && ttScore >= beta)
+                    || (bound == TranspositionTable.UPPER && ttScore <= alpha)) {
+                return ttScore;
+            }
+        }
+
+        if (depth >= maxDepth) {
+            int score = quiescence(task, state, alpha, beta, depth, 0);
+            store(table, hashcode, 0, alpha, beta, score, PackedMove.NONE);
+            return score;
+        }
+
+        //The hash move first, the other moves by the history heuristic score of this thread
+        long[] moves = task.moveBuffer(depth);
+        long[] keys = task.orderKeys[depth];
+        int moveCount = state.generateMoves(moves);
+        long hashMove = table.move(hashcode);
+        boolean white = state.isWhiteToMove();
+        for (int i = 0; i < moveCount; i++) {
+            keys[i] = (moves[i] == hashMove ? 1L << 32 : 0L) | Group11DraughtsPlayer.HistoryHeuristicScore(task.history, moves[i], white);
+        }
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        long bestMove = PackedMove.NONE;
+        for (int i = 0; i < moveCount; i++) {
+            long move = player.selectMove(moves, keys, i, moveCount);
+
+            //The young brothers wait until the eldest brother is searched, then they are searched in parallel
+            if (i == 1 && remaining >= splitDepth) {
+                int score = searchBrothers(task, state, moves, keys, 1, moveCount, alpha, beta, depth, maxDepth);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = task.splitBest;
+                }
+                break;
+            }
+
+            state.doMove(move);
+            int score;
+            if (i == 0) {
+                score = -alphaBeta(task, state, -beta, -alpha, depth + 1, maxDepth);
+            } else {
+                score = -alphaBeta(task, state, -alpha - 1, -alpha, depth + 1, maxDepth);
+                if (score > alpha && score < beta) {
+                    score = -alphaBeta(task, state, -beta, -alpha, depth + 1, maxDepth);
+                }
+            }
+            state.undoMove();
+
+            if (score > bestScore || bestMove == PackedMove.NONE) {
+                bestScore = Math.max(bestScore, score);
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        if (depth == task.depth) {
+            task.bestMove = bestMove;
+        }
+        Group11DraughtsPlayer.SetHistoryHeuristic(task.history, bestMove, white, depth);
+        store(table, hashcode, remaining, originalAlpha, beta, bestScore, bestMove);
+        return bestScore;
+    }
+
+    /**
+     * Search the moves from the given index in parallel, each as a task with its own copy of the state
+     * @return the best score of the moves, the best move is put in task.splitBest
+     */
+    private int searchBrothers(Task task, DraughtsState state, long[] moves, long[] keys, int from, int moveCount,
+            int alpha, int beta, int depth, int maxDepth) {
+        //Put the remaining moves in order, so the most promising ones are forked first
+        for (int i = from; i < moveCount; i++) {
+            player.selectMove(moves, keys, i, moveCount);
+        }
+        Task[] brothers = new Task[moveCount - from];
+        for (int i = from; i < moveCount; i++) {
+            DraughtsState child = state.clone();
+            child.doMove(moves[i]);
+            Task brother = new Task(task, child, -beta, -alpha, depth + 1, maxDepth);
+            brothers[i - from] = brother;
+            brother.fork();
+        }
+
+        int bestScore = -INFINITY;
+        long bestMove = PackedMove.NONE;
+        boolean cutOff = false;
+        //The brothers are joined in the reverse order, the last one forked is on top of the queue of this thread so it can be run right away
+        for (int i = brothers.length - 1; i >= 0; i--) {
+            Task brother = brothers[i];
+            Integer result;
+            try {
+                result = brother.join();
+            } catch (CancellationException ex) {
+                result = null;
+            }
+            if (result == null) {
+                continue;
+            }
+            int score = -result;
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = moves[from + i];
+            }
+            if (score >= beta && !cutOff) {
+                //A cut off, the other brothers and all their tasks are not needed anymore
+                cutOff = true;
+                for (Task other : brothers) {
+                    if (other != brother) {
+                        other.aborted = true;
+                        other.cancel(false);
+                    }
+                }
+            }
+        }
+        //If this task itself was aborted, the results of the brothers are incomplete
+        if (task.isAborted()) {
+            throw ABORTED;
+        }
+        task.splitBest = bestMove;
+        return bestScore;
+    }
+
+    //The quiescence search of a task, like the one of the player but with the move buffers of the task
+    private int quiescence(Task task, DraughtsState state, int alpha, int beta, int depth, int quiescencePly) {
+        if (task.isAborted()) {
+            throw ABORTED;
+        }
+        nodeCount.increment();
+        if (player.IsQuiet(state) || quiescencePly >= player.quiescenceDepth || depth >= MAX_PLY - 1) {
+            return player.lazyEvaluate(state, alpha, beta);
+        }
+        long[] moves = task.moveBuffer(depth);
+        int moveCount = state.generateCaptures(moves);
+        int bestScore = -INFINITY;
+        for (int i = 0; i < moveCount; i++) {
+            state.doMove(moves[i]);
+            int score = -quiescence(task, state, -beta, -alpha, depth + 1, quiescencePly + 1);
+            state.undoMove();
+            bestScore = Math.max(bestScore, score);
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return bestScore;
+    }
+
+    //Store a score with the bound that follows from the window it was searched with
+    private static void store(TranspositionTable table, long hashcode, int remaining, int alpha, int beta, int score, long move) {
+        int bound = TranspositionTable.EXACT;
+        if (score <= alpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (score >= beta) {
+            bound = TranspositionTable.LOWER;
+        }
+        table.store(hashcode, remaining, bound, score, move);
+    }
+}